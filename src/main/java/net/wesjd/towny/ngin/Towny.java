@@ -8,17 +8,23 @@ import net.milkbowl.vault.economy.Economy;
 import net.wesjd.towny.ngin.chat.ChatLock;
 import net.wesjd.towny.ngin.command.framework.CommandManager;
 import net.wesjd.towny.ngin.command.framework.argument.provider.EnumProvider;
+import net.wesjd.towny.ngin.command.framework.argument.provider.IntegerProvider;
 import net.wesjd.towny.ngin.command.framework.argument.provider.OfflineTownyPlayerProvider;
 import net.wesjd.towny.ngin.command.framework.argument.verifier.RegexVerifier;
 import net.wesjd.towny.ngin.command.framework.argument.verifier.RequiredVerifier;
 import net.wesjd.towny.ngin.chat.FormatListener;
 import net.wesjd.towny.ngin.listeners.AutoOpListener;
 import net.wesjd.towny.ngin.listeners.JoinLeaveListener;
+import net.wesjd.towny.ngin.listeners.ProtectionListener;
+import net.wesjd.towny.ngin.metrics.Metrics;
+import net.wesjd.towny.ngin.player.BalanceLedger;
 import net.wesjd.towny.ngin.player.OfflineTownyPlayer;
 import net.wesjd.towny.ngin.player.PlayerManager;
 import net.wesjd.towny.ngin.player.Rank;
 import net.wesjd.towny.ngin.storage.GStorageModule;
 import net.wesjd.towny.ngin.town.TownManager;
+import net.wesjd.towny.ngin.town.TownMetric;
+import net.wesjd.towny.ngin.town.TownStatistics;
 import net.wesjd.towny.ngin.util.Scheduling;
 import net.wesjd.towny.ngin.util.EconomyInjection;
 import org.bukkit.Bukkit;
@@ -39,9 +45,13 @@ public class Towny extends JavaPlugin {
                     bind(Towny.class).toInstance(Towny.this);
 
                     bind(PlayerManager.class).in(Singleton.class);
+                    bind(BalanceLedger.class).in(Singleton.class);
+                    bind(TownManager.class).in(Singleton.class);
+                    bind(TownStatistics.class).in(Singleton.class);
                     bind(CommandManager.class).in(Singleton.class);
                     bind(PluginUpdater.class).in(Singleton.class);
                     bind(ChatLock.class).in(Singleton.class);
+                    bind(Metrics.class).in(Singleton.class);
                 }
             }
     );
@@ -50,11 +60,13 @@ public class Towny extends JavaPlugin {
     public void onEnable() {
         try {
             getDataFolder().mkdirs();
+            saveDefaultConfig();
 
             registerListeners(
                     JoinLeaveListener.class,
                     FormatListener.class,
-                    AutoOpListener.class
+                    AutoOpListener.class,
+                    ProtectionListener.class
             );
 
             final PluginUpdater updater = injector.getInstance(PluginUpdater.class);
@@ -65,14 +77,22 @@ public class Towny extends JavaPlugin {
             commandManager.addVerifier(Object.class, new RequiredVerifier());
             commandManager.addVerifier(String.class, new RegexVerifier());
             commandManager.bind(Rank.class).toProvider(new EnumProvider<>());
+            commandManager.bind(TownMetric.class).toProvider(new EnumProvider<>());
+            commandManager.bind(Integer.class).toProvider(new IntegerProvider());
             commandManager.bind(OfflineTownyPlayer.class).toProvider(injector.getInstance(OfflineTownyPlayerProvider.class));
             commandManager.registerClassesOf("net.wesjd.towny.ngin.command");
 
+            final TownManager townManager = injector.getInstance(TownManager.class);
+            townManager.loadTowns();
+            Scheduling.syncTimer(townManager::flush, 20 * 30, 20 * 30);
+
+            injector.getInstance(PlayerManager.class).loadBalances();
+            final BalanceLedger ledger = injector.getInstance(BalanceLedger.class);
+            Scheduling.asyncTimer(ledger::flush, 20 * 30, 20 * 30);
+
             final Plugin vault = getServer().getPluginManager().getPlugin("Vault");
             getServer().getServicesManager().register(Economy.class, injector.getInstance(EconomyInjection.class), vault, ServicePriority.Normal);
             getLogger().info("Injected custom economy for vault.");
-
-            injector.getInstance(TownManager.class).loadTowns();
         } catch (Exception ex) {
             ex.printStackTrace();
             Bukkit.shutdown();
@@ -81,8 +101,12 @@ public class Towny extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        injector.getInstance(TownManager.class).saveTowns();
+        injector.getInstance(CommandManager.class).shutdown();
+        final TownManager townManager = injector.getInstance(TownManager.class);
+        townManager.saveTowns();
+        townManager.shutdown();
         injector.getInstance(PlayerManager.class).saveLoaded();
+        injector.getInstance(BalanceLedger.class).save();
     }
 
     @SafeVarargs
@@ -1,5 +1,7 @@
 package net.wesjd.towny.ngin.chat;
 
+import net.wesjd.towny.ngin.metrics.LatencyHistogram;
+import net.wesjd.towny.ngin.metrics.Metrics;
 import net.wesjd.towny.ngin.player.PlayerManager;
 import net.wesjd.towny.ngin.player.Rank;
 import net.wesjd.towny.ngin.player.TownyPlayer;
@@ -10,6 +12,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 
 import javax.inject.Inject;
+import java.util.concurrent.atomic.LongAdder;
 
 import static org.bukkit.ChatColor.DARK_GRAY;
 import static org.bukkit.ChatColor.GRAY;
@@ -20,9 +23,24 @@ import static org.bukkit.ChatColor.RESET;
  */
 public class FormatListener implements Listener {
 
+    /**
+     * The time taken to send each chat message to every recipient
+     */
+    private final LatencyHistogram broadcastTimer;
+    /**
+     * How many players chat messages were sent to, which with the timer gives the cost per recipient
+     */
+    private final LongAdder recipients;
+
     @Inject
     private PlayerManager playerManager;
 
+    @Inject
+    public FormatListener(Metrics metrics) {
+        broadcastTimer = metrics.timer("chat.broadcast");
+        recipients = metrics.counter("chat.recipients");
+    }
+
     /**
      * Formats chat
      */
@@ -30,8 +48,11 @@ public class FormatListener implements Listener {
     public void onChat(AsyncPlayerChatEvent e) {
         final TownyPlayer player = playerManager.getPlayer(e.getPlayer());
         final Rank rank = player.getRank();
-        Everyone.message(DARK_GRAY + "[" + rank.getColor() + rank.getPrefix() + DARK_GRAY + "] " +
-                rank.getColor() + player.getName() + GRAY + ": " + RESET + e.getMessage());
+        final long start = System.nanoTime();
+        Everyone.broadcast(DARK_GRAY + "[" + rank.getColor() + rank.getPrefix() + DARK_GRAY + "] " +
+                rank.getColor() + player.getName() + GRAY + ": " + RESET + e.getMessage(), e.getRecipients());
+        broadcastTimer.recordSince(start);
+        recipients.add(e.getRecipients().size());
 
         e.setCancelled(true);
     }
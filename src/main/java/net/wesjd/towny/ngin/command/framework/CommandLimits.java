@@ -0,0 +1,73 @@
+package net.wesjd.towny.ngin.command.framework;
+
+import net.wesjd.towny.ngin.command.framework.annotation.RateLimit;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The limits shared by every command, the rate limiters of each command and the cap on running expensive commands
+ */
+class CommandLimits {
+
+    /**
+     * The most expensive commands that may run at once
+     */
+    private final int maxExpensive;
+    /**
+     * The amount of expensive commands running
+     */
+    private final AtomicInteger runningExpensive = new AtomicInteger();
+    /**
+     * Every command's rate limiter
+     */
+    private final List<RateLimiter> limiters = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates the limits
+     *
+     * @param maxExpensive The most expensive commands that may run at once
+     */
+    CommandLimits(int maxExpensive) {
+        this.maxExpensive = maxExpensive;
+    }
+
+    /**
+     * Creates the rate limiter of a command
+     *
+     * @param rateLimit The command's annotation
+     * @return The limiter
+     */
+    RateLimiter limiter(RateLimit rateLimit) {
+        final RateLimiter limiter = new RateLimiter(rateLimit.uses(), rateLimit.seconds());
+        limiters.add(limiter);
+        return limiter;
+    }
+
+    /**
+     * Starts running an expensive command if there's room
+     *
+     * @return Whether it may run, if so {@link #exitExpensive()} must be called once it's done
+     */
+    boolean enterExpensive() {
+        if(runningExpensive.incrementAndGet() <= maxExpensive) return true;
+        runningExpensive.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * Marks an expensive command as done
+     */
+    void exitExpensive() {
+        runningExpensive.decrementAndGet();
+    }
+
+    /**
+     * Forgets every player whose buckets are full again
+     */
+    void cleanUp() {
+        limiters.forEach(RateLimiter::cleanUp);
+    }
+
+}
@@ -0,0 +1,100 @@
+package net.wesjd.towny.ngin.command.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses typed commands.
+ * The label is found without allocating, so commands of other plugins cost almost nothing,
+ * and only our own commands are split into arguments.
+ */
+final class CommandLine {
+
+    /**
+     * Shared empty result for commands without arguments
+     */
+    private static final String[] NO_ARGUMENTS = new String[0];
+
+    private CommandLine() {
+    }
+
+    /**
+     * Finds where the label of a typed command ends
+     *
+     * @param message The message, starting with a slash
+     * @return The index after the label's last character
+     */
+    static int labelEnd(String message) {
+        final int space = message.indexOf(' ', 1);
+        return space == -1 ? message.length() : space;
+    }
+
+    /**
+     * Splits the arguments of a command.
+     * Repeated spaces are ignored, and an argument wrapped in double quotes may contain spaces,
+     * with <code>\"</code> and <code>\\</code> escaping a quote or backslash inside it.
+     *
+     * @param message The message
+     * @param from Where the arguments start
+     * @return The arguments
+     */
+    static String[] tokenize(String message, int from) {
+        return tokenize(message, from, false);
+    }
+
+    /**
+     * Splits the arguments of a command that is still being typed, the same way as {@link #tokenize(String, int)}.
+     * The last token is always the argument being typed, empty if the message ends with a space.
+     *
+     * @param message The message typed so far
+     * @param from Where the arguments start
+     * @return The arguments, ending with the partial one
+     */
+    static String[] tokenizePartial(String message, int from) {
+        return tokenize(message, from, true);
+    }
+
+    /**
+     * Splits the arguments of a command
+     *
+     * @param message The message
+     * @param from Where the arguments start
+     * @param partial Whether to end with an empty argument when the message ends with a space
+     * @return The arguments
+     */
+    private static String[] tokenize(String message, int from, boolean partial) {
+        final int length = message.length();
+        List<String> tokens = null;
+        int i = from;
+        while(true) {
+            final int spaces = i;
+            while(i < length && message.charAt(i) == ' ') i++;
+            if(i >= length) {
+                if(partial && i > spaces) {
+                    if(tokens == null) tokens = new ArrayList<>(1);
+                    tokens.add("");
+                }
+                break;
+            }
+            if(tokens == null) tokens = new ArrayList<>(4);
+
+            if(message.charAt(i) == '"') {
+                final StringBuilder token = new StringBuilder();
+                i++;
+                while(i < length && message.charAt(i) != '"') {
+                    char c = message.charAt(i++);
+                    if(c == '\\' && i < length && (message.charAt(i) == '"' || message.charAt(i) == '\\')) c = message.charAt(i++);
+                    token.append(c);
+                }
+                i++;
+                tokens.add(token.toString());
+            } else {
+                final int start = i;
+                while(i < length && message.charAt(i) != ' ') i++;
+                tokens.add(message.substring(start, i));
+            }
+        }
+        return tokens == null ? NO_ARGUMENTS : tokens.toArray(new String[tokens.size()]);
+    }
+
+}
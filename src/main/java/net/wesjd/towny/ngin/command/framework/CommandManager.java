@@ -1,51 +1,70 @@
 package net.wesjd.towny.ngin.command.framework;
 
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.events.PacketAdapter;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketEvent;
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import net.wesjd.towny.ngin.Towny;
 import net.wesjd.towny.ngin.command.framework.annotation.Command;
-import net.wesjd.towny.ngin.command.framework.annotation.Requires;
 import net.wesjd.towny.ngin.command.framework.annotation.SubCommand;
 import net.wesjd.towny.ngin.command.framework.argument.ArgumentBinding;
 import net.wesjd.towny.ngin.command.framework.argument.Arguments;
 import net.wesjd.towny.ngin.command.framework.argument.verifier.ArgumentVerifier;
+import net.wesjd.towny.ngin.metrics.LatencyHistogram;
+import net.wesjd.towny.ngin.metrics.Metrics;
 import net.wesjd.towny.ngin.player.PlayerManager;
-import net.wesjd.towny.ngin.player.Rank;
 import net.wesjd.towny.ngin.player.TownyPlayer;
+import net.wesjd.towny.ngin.util.PrefixIndex;
+import net.wesjd.towny.ngin.util.Scheduling;
 import org.bukkit.Bukkit;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerCommandPreprocessEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.reflections.Reflections;
 
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Function;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
-
-import static org.bukkit.ChatColor.*;
 
 /**
  * Stores and handles all commands
  */
 public class CommandManager {
 
+    /**
+     * The most suggestions sent for one tab completion
+     */
+    private static final int COMPLETION_LIMIT = 32;
+
     /**
      * A main class instance, provided in the constrcutor
      */
     private final Towny main;
 
     /**
-     * A store of command names to their command data to save on lookup time
+     * The root of the dispatch trie, lowercase command names to their nodes
+     */
+    private final LabelTable<CommandNode> commands = new LabelTable<>();
+    /**
+     * The lowercase command names, searchable by prefix
      */
-    private final Map<String, CommandData> commands = new HashMap<>();
+    private final PrefixIndex<String> labels = new PrefixIndex<>();
+    /**
+     * Command names each player is completing, added to the server's own reply to their tab completion
+     */
+    private final Map<UUID, List<String>> pendingLabels = new ConcurrentHashMap<>();
     /**
      * A store of argument types to their bindings
      */
@@ -53,25 +72,116 @@ public class CommandManager {
     /**
      * A store of argument types to verifiers
      */
-    private final Multimap<Class<?>, ArgumentVerifier> verifiers = ArrayListMultimap.create();
+    private final Multimap<Class<?>, ArgumentVerifier<?>> verifiers = ArrayListMultimap.create();
+    /**
+     * Runs async commands and resolves async arguments
+     */
+    private final ExecutorService executor = Executors.newFixedThreadPool(4,
+            new ThreadFactoryBuilder().setNameFormat("ngin-command-%d").setDaemon(true).build());
+
+    /**
+     * The rate limits and expensive command cap
+     */
+    private final CommandLimits limits;
+    /**
+     * Where every command records its timings and counts
+     */
+    private final Metrics metrics;
+    /**
+     * The time taken walking the dispatch trie to the called subcommand
+     */
+    private final LatencyHistogram dispatchTimer;
 
     /**
      * Loads all of the commandables
      */
     @Inject
-    public CommandManager(Towny main, PlayerManager playerManager) {
+    public CommandManager(Towny main, PlayerManager playerManager, Metrics metrics) {
         this.main = main;
+        this.metrics = metrics;
+        dispatchTimer = metrics.timer("command.dispatch");
+        limits = new CommandLimits(main.getConfig().getInt("commands.max-expensive", 4));
+        Scheduling.asyncTimer(limits::cleanUp, 20 * 60, 20 * 60);
         Bukkit.getPluginManager().registerEvents(new Listener() {
             @EventHandler
             public void onCommand(PlayerCommandPreprocessEvent e) {
-                final String[] parsed = e.getMessage().split(" ");
-                final String commandName = parsed[0].substring(1);
-                final String[] args = new String[parsed.length-1];
-                System.arraycopy(parsed, 1, args, 0, args.length);
-                if(callCommand(playerManager.getPlayer(e.getPlayer()), commandName, args))
-                    e.setCancelled(true);
+                final String message = e.getMessage();
+                final int labelEnd = CommandLine.labelEnd(message);
+                final CommandNode command = commands.get(message, 1, labelEnd);
+                if(command == null) return;
+
+                dispatch(playerManager.getPlayer(e.getPlayer()), command, CommandLine.tokenize(message, labelEnd));
+                e.setCancelled(true);
+            }
+
+            @EventHandler
+            public void onQuit(PlayerQuitEvent e) {
+                pendingLabels.remove(e.getPlayer().getUniqueId());
             }
         }, main);
+
+        if(main.getConfig().getBoolean("commands.packet-dispatch", false)) {
+            ProtocolLibrary.getProtocolManager().addPacketListener(new PacketAdapter(main, PacketType.Play.Client.CHAT) {
+                @Override
+                public void onPacketReceiving(PacketEvent e) {
+                    final String message = e.getPacket().getStrings().read(0);
+                    if(message == null || !message.startsWith("/")) return;
+                    final int labelEnd = CommandLine.labelEnd(message);
+                    final CommandNode command = commands.get(message, 1, labelEnd);
+                    if(command == null) return;
+                    final TownyPlayer player = playerManager.getPlayer(e.getPlayer());
+                    if(player == null) return;
+
+                    final long start = System.nanoTime();
+                    final Arguments arguments = new Arguments(CommandLine.tokenize(message, labelEnd));
+                    final CommandNode node = command.walk(arguments);
+                    if(!node.getPlan().isNetworkSafe()) return;
+
+                    dispatchTimer.recordSince(start);
+                    e.setCancelled(true);
+                    node.getPlan().invoke(player, arguments, executor);
+                }
+            });
+        }
+
+        ProtocolLibrary.getProtocolManager().addPacketListener(new PacketAdapter(main,
+                PacketType.Play.Client.TAB_COMPLETE, PacketType.Play.Server.TAB_COMPLETE) {
+            @Override
+            public void onPacketReceiving(PacketEvent e) {
+                pendingLabels.remove(e.getPlayer().getUniqueId());
+                final TownyPlayer player = playerManager.getPlayer(e.getPlayer());
+                if(player == null) return;
+
+                final String buffer = e.getPacket().getStrings().read(0);
+                final List<String> suggestions = complete(player, buffer, COMPLETION_LIMIT);
+                if(suggestions == null) return;
+                if(buffer.startsWith("/") && CommandLine.labelEnd(buffer) == buffer.length()) {
+                    if(!suggestions.isEmpty()) pendingLabels.put(player.getUuid(), suggestions);
+                    return;
+                }
+
+                e.setCancelled(true);
+                final PacketContainer reply = new PacketContainer(PacketType.Play.Server.TAB_COMPLETE);
+                reply.getStringArrays().write(0, suggestions.toArray(new String[0]));
+                try {
+                    ProtocolLibrary.getProtocolManager().sendServerPacket(e.getPlayer(), reply);
+                } catch (InvocationTargetException ex) {
+                    throw new RuntimeException("Unable to send tab completions", ex);
+                }
+            }
+
+            @Override
+            public void onPacketSending(PacketEvent e) {
+                final List<String> pending = pendingLabels.remove(e.getPlayer().getUniqueId());
+                if(pending == null) return;
+
+                final Set<String> merged = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+                final String[] existing = e.getPacket().getStringArrays().read(0);
+                if(existing != null) merged.addAll(Arrays.asList(existing));
+                merged.addAll(pending);
+                e.getPacket().getStringArrays().write(0, merged.toArray(new String[merged.size()]));
+            }
+        });
     }
 
     /**
@@ -95,6 +205,18 @@ public class CommandManager {
         verifiers.put(type, verifier);
     }
 
+    /**
+     * Stops running async commands, waiting briefly for the running ones to finish
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /**
      * Start an argument binding
      *
@@ -106,118 +228,98 @@ public class CommandManager {
     }
 
     /**
-     * Calls a command
+     * Calls a command by its name
      *
      * @param calledCommand The command that should be called
      * @param providedArguments The command arguments
      * @return Weather the command successfully executed
      */
     public boolean callCommand(TownyPlayer caller, String calledCommand, String[] providedArguments) {
-        final CommandData command = commands.get(calledCommand);
-        if(command != null) {
-            final Arguments arguments = new Arguments(providedArguments);
-            final SubCommandData topSubcommand = getTopSubcommand(calledCommand, arguments, null, command.getSubcommands());
-            if(topSubcommand != null) invokeCommandMethod(command.getClassInstance(), topSubcommand.getMethod(), caller, arguments);
-            else invokeCommandMethod(command.getClassInstance(), command.getMethod(), caller, arguments);
-            return true;
-        } else return false;
+        final CommandNode command = commands.get(calledCommand);
+        if(command == null) return false;
+
+        dispatch(caller, command, providedArguments);
+        return true;
     }
 
     /**
-     * Finds the top subcommand for the command
+     * Walks the dispatch trie one argument at a time to find the deepest matching subcommand, and calls it
      *
-     * @param base The command to find the top subcommand of
-     * @param arguments The command arguments
-     * @param lastTop The last top subcommad, used in recursion
-     * @param subcommands All of the possible subcommands
-     * @return The top subcommand
+     * @param caller The player calling the command
+     * @param node The command's node
+     * @param providedArguments The command arguments
      */
-    private SubCommandData getTopSubcommand(String base, Arguments arguments, SubCommandData lastTop, Set<SubCommandData> subcommands) {
-        if(arguments.hasNext()) {
-            final String next = arguments.next();
-            for(SubCommandData subcommand : subcommands) {
-                final SubCommand annotation = subcommand.getAnnotation();
-                if(annotation.of().equals(base) && annotation.name().equals(next)) {
-                    final SubCommandData nextResult = getTopSubcommand(base + " " + next, arguments, subcommand, subcommand.getSubcommands());
-                    if(nextResult == null) return subcommand;
-                    else return nextResult;
-                }
-            }
-            arguments.unshift();
+    private void dispatch(TownyPlayer caller, CommandNode node, String[] providedArguments) {
+        final long start = System.nanoTime();
+        final Arguments arguments = new Arguments(providedArguments);
+        node = node.walk(arguments);
+        dispatchTimer.recordSince(start);
+        node.getPlan().invoke(caller, arguments, executor);
+    }
+
+    /**
+     * Completes a partly typed command from the command tree and the argument providers, safe to call off the main thread.
+     * Arguments are split the same way as when the command is run, so quoted arguments count as one.
+     *
+     * @param caller The player completing the command
+     * @param buffer Everything typed so far, including the slash
+     * @param limit The most suggestions to return
+     * @return The suggestions for the last word, slashed command names while the label is being typed,
+     *         or null if it isn't a command of ours
+     */
+    public List<String> complete(TownyPlayer caller, String buffer, int limit) {
+        if(!buffer.startsWith("/")) return null;
+
+        final int labelEnd = CommandLine.labelEnd(buffer);
+        if(labelEnd == buffer.length()) return completeLabel(caller, buffer.substring(1), limit);
+        CommandNode node = commands.get(buffer, 1, labelEnd);
+        if(node == null) return null;
+
+        final String[] tokens = CommandLine.tokenizePartial(buffer, labelEnd);
+        int consumed = 0;
+        while(consumed < tokens.length - 1) {
+            final CommandNode child = node.getChild(tokens[consumed].toLowerCase());
+            if(child == null) break;
+            node = child;
+            consumed++;
         }
-        return lastTop;
+        if(!node.getPlan().canUse(caller)) return Collections.emptyList();
+
+        final String last = tokens[tokens.length - 1];
+        final int argument = tokens.length - 1 - consumed;
+        final List<String> suggestions = new ArrayList<>();
+        if(argument == 0) suggestions.addAll(node.completeChild(last, limit));
+        suggestions.addAll(node.getPlan().suggest(argument, last, limit - suggestions.size()));
+        return suggestions;
     }
 
     /**
-     * Invoke a command method
+     * Completes a partly typed command name
      *
-     * @param object The object ({@link Commandable}) to invoke upon
-     * @param method The method to invoke
-     * @param arguments The command arguments
+     * @param caller The player completing the name
+     * @param prefix The name typed so far, without the slash
+     * @param limit The most names to return
+     * @return The names of the commands the player can use, with a leading slash
      */
-    private void invokeCommandMethod(Object object, Method method, TownyPlayer caller, Arguments arguments) {
-        try {
-            if(method.isAnnotationPresent(Requires.class)) {
-                final Rank required = method.getAnnotation(Requires.class).value();
-                if(!caller.hasRank(required)) {
-                    caller.getWrapped().sendMessage(RED + "You need the rank " + BLUE + required + RED + " to use this command!");
-                    return;
-                }
-            }
-            final Parameter[] parameters = method.getParameters();
-
-            final Object[] suppliedParameters = new Object[parameters.length];
-            if(parameters[0].getType().equals(TownyPlayer.class)) suppliedParameters[0] = caller;
-            else throw new RuntimeException("Command must take sender as first parameter.");
-            IntStream.range(1, parameters.length)
-                    .forEach(i -> {
-                        Object supply = null;
-                        final Parameter parameter = parameters[i];
-                        final Class<?> type = parameter.getType();
-
-                        boolean supplied = false;
-                        final ArgumentBinding<?> binding = bindings.get(type);
-                        if(binding != null) {
-                            final Optional<Class<? extends Annotation>> annotation = binding.getAnnotation();
-                            if(!annotation.isPresent() || parameter.isAnnotationPresent(annotation.get())) {
-                                if(arguments.hasNext()) supply = binding.getArgumentProvider().get(parameter, arguments);
-                                supplied = true;
-                            }
-                        }
-
-                        if(supply == null && !supplied) {
-                            if(type.isAssignableFrom(String.class)) supply = arguments.safeNext().orElse(null);
-                            else throw new RuntimeException("Cannot convert " + parameter.getType().getSimpleName() + " to required type.");
-                        }
-                        suppliedParameters[i] = supply;
-                    });
-
-            final AtomicInteger index = new AtomicInteger();
-            final Optional<String> failure = Arrays.stream(parameters)
-                    .flatMap(parameter -> {
-                        final int currentIndex = index.getAndIncrement();
-                        return getVerifiersFor(parameter.getType()).map(verifier -> verifier.verify(parameter, suppliedParameters[currentIndex]));
-                    })
-                    .filter(Objects::nonNull)
-                    .map(Optional::of)
-                    .findFirst().flatMap(Function.identity());
-            if(failure.isPresent()) caller.getWrapped().sendMessage(RED + failure.get());
-            else method.invoke(object, suppliedParameters);
-        } catch (IllegalAccessException | InvocationTargetException ex) {
-            ex.printStackTrace();
+    private List<String> completeLabel(TownyPlayer caller, String prefix, int limit) {
+        final List<String> suggestions = new ArrayList<>();
+        for(String label : labels.complete(prefix, limit)) {
+            final CommandNode node = commands.get(label);
+            if(node != null && node.getPlan().canUse(caller)) suggestions.add("/" + label);
         }
+        return suggestions;
     }
 
     /**
-     * Gets the verifiers for a type, including object verifiers
+     * Gets the verifiers for a type, including object verifiers, without changing the registered verifiers
      *
      * @param type The object type
-     * @return A stream of the found verifiers
+     * @return A new list of the found verifiers
      */
-    private Stream<ArgumentVerifier> getVerifiersFor(Class<?> type) {
-        final Collection<ArgumentVerifier> verifiers = this.verifiers.get(type);
-        verifiers.addAll(this.verifiers.get(Object.class));
-        return verifiers.stream();
+    private List<ArgumentVerifier<?>> getVerifiersFor(Class<?> type) {
+        final List<ArgumentVerifier<?>> found = new ArrayList<>(verifiers.get(type));
+        found.addAll(verifiers.get(Object.class));
+        return found;
     }
 
     /**
@@ -237,132 +339,30 @@ public class CommandManager {
                 .collect(Collectors.toSet());
         commands.forEach(method -> {
             final Command command = method.getAnnotation(Command.class);
-            this.commands.put(command.name(), new CommandData(commandObject, command, method,
-                    getSubCommands(command.name(), subcommands)));
+            this.commands.put(command.name(), buildNode(commandObject, method, command.name(), subcommands));
+            labels.put(command.name().toLowerCase(), command.name().toLowerCase());
         });
     }
 
     /**
-     * Recursively search through to find subcommands
+     * Recursively builds the node of a command and every subcommand under it
      *
-     * @param of What command the subcommands should be under
+     * @param object The command class instance
+     * @param method The command's method
+     * @param path The full name of the command, such as "town warp"
      * @param subcommands All of the possible subcommands
-     * @return All of the generated subcommands
-     */
-    private Set<SubCommandData> getSubCommands(String of, Set<Method> subcommands) {
-        final Set<SubCommandData> ret = new HashSet<>();
-
-        for(Method method : subcommands) {
-            final SubCommand subcommand = method.getAnnotation(SubCommand.class);
-            if (subcommand.of().equals(of))
-                ret.add(new SubCommandData(subcommand, method, getSubCommands(of + " " + subcommand.name(), subcommands)));
-        }
-
-        return ret;
-    }
-
-    /**
-     * Represents a base command, containing subcommands
-     */
-    private static class CommandData {
-
-        /**
-         * The actual command class
-         */
-        private final Object object;
-        /**
-         * The command annoatation (and data) itself
-         */
-        private final Command command;
-        /**
-         * The method to call the command upon
-         */
-        private final Method method;
-        /**
-         * All of the subcommands for this command
-         */
-        private final Set<SubCommandData> subcommands;
-
-        /**
-         * Stores some command data
-         *
-         * @param object The actual actual command class instance
-         * @param command The command annoation
-         * @param method The annotated method
-         * @param subcommands All of the subcommands
-         */
-        public CommandData(Object object, Command command, Method method, Set<SubCommandData> subcommands) {
-            this.object = object;
-            this.command = command;
-            this.method = method;
-            this.subcommands = subcommands;
-        }
-
-        public Object getClassInstance() {
-            return object;
-        }
-
-        public Command getAnnotation() {
-            return command;
-        }
-
-        public Method getMethod() {
-            return method;
-        }
-
-        public Set<SubCommandData> getSubcommands() {
-            return Collections.unmodifiableSet(subcommands);
-        }
-
-    }
-
-    /**
-     * Represents a subcommand, containing all of it's subcommands
+     * @return The immutable node
      */
-    private static class SubCommandData {
-
-        /**
-         * The subcommand's annoation (and data)
-         */
-        private final SubCommand subcommand;
-        /**
-         * The method to call the command upon
-         */
-        private final Method method;
-        /**
-         * All of the subcommands for this subcommand
-         */
-        private final Set<SubCommandData> subcommands;
-
-        /**
-         * Stores some subcommand data
-         *
-         * @param subcommand The subcommand annotation
-         * @param method The annotated method
-         * @param subcommands All of the subcommands
-         */
-        public SubCommandData(SubCommand subcommand, Method method, Set<SubCommandData> subcommands) {
-            this.subcommand = subcommand;
-            this.method = method;
-            this.subcommands = subcommands;
-        }
-
-        public SubCommand getAnnotation() {
-            return subcommand;
-        }
-
-        public Method getMethod() {
-            return method;
-        }
-
-        public Set<SubCommandData> getSubcommands() {
-            return Collections.unmodifiableSet(subcommands);
-        }
-
-        @Override
-        public String toString() {
-            return subcommand.name();
+    private CommandNode buildNode(Object object, Method method, String path, Set<Method> subcommands) {
+        final ImmutableMap.Builder<String, CommandNode> children = ImmutableMap.builder();
+        for(Method subMethod : subcommands) {
+            final SubCommand subcommand = subMethod.getAnnotation(SubCommand.class);
+            if(subcommand.of().equalsIgnoreCase(path))
+                children.put(subcommand.name().toLowerCase(),
+                        buildNode(object, subMethod, path + " " + subcommand.name(), subcommands));
         }
+        final InvocationPlan plan = new InvocationPlan(object, method, bindings, this::getVerifiersFor, limits, path, metrics);
+        return new CommandNode(method, plan, children.build());
     }
 
 }
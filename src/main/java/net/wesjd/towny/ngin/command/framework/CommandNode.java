@@ -0,0 +1,97 @@
+package net.wesjd.towny.ngin.command.framework;
+
+import net.wesjd.towny.ngin.command.framework.argument.Arguments;
+import net.wesjd.towny.ngin.util.PrefixIndex;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A node of the dispatch trie, a command or subcommand along with the subcommands under it
+ */
+class CommandNode {
+
+    /**
+     * The method to call the command upon
+     */
+    private final Method method;
+    /**
+     * The compiled plan for calling the method
+     */
+    private final InvocationPlan plan;
+    /**
+     * The subcommands under this one by their lowercase name
+     */
+    private final Map<String, CommandNode> children;
+    /**
+     * The names of the subcommands, searchable by prefix
+     */
+    private final PrefixIndex<String> childNames = new PrefixIndex<>();
+
+    /**
+     * Creates a node
+     *
+     * @param method The annotated method
+     * @param plan The compiled plan for calling the method
+     * @param children The subcommands by their lowercase name
+     */
+    CommandNode(Method method, InvocationPlan plan, Map<String, CommandNode> children) {
+        this.method = method;
+        this.plan = plan;
+        this.children = children;
+        children.keySet().forEach(name -> childNames.put(name, name));
+    }
+
+    public InvocationPlan getPlan() {
+        return plan;
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    /**
+     * Gets a subcommand by its name
+     *
+     * @param name The lowercase name
+     * @return The subcommand's node, or null if there's none by that name
+     */
+    public CommandNode getChild(String name) {
+        return children.get(name);
+    }
+
+    /**
+     * Finds the deepest subcommand matching the arguments, consuming the subcommand names
+     *
+     * @param arguments The arguments after this command's name
+     * @return The node of the subcommand, or this node if no subcommand matches
+     */
+    public CommandNode walk(Arguments arguments) {
+        CommandNode node = this;
+        while(arguments.hasNext()) {
+            final CommandNode child = node.getChild(arguments.peek().toLowerCase());
+            if(child == null) break;
+            arguments.next();
+            node = child;
+        }
+        return node;
+    }
+
+    /**
+     * Completes a partial subcommand name
+     *
+     * @param prefix The start of the name, ignoring case
+     * @param limit The most names to return
+     * @return The matching subcommand names in alphabetical order
+     */
+    public List<String> completeChild(String prefix, int limit) {
+        return childNames.complete(prefix, limit);
+    }
+
+    @Override
+    public String toString() {
+        return method.getName() + children.keySet();
+    }
+
+}
@@ -0,0 +1,360 @@
+package net.wesjd.towny.ngin.command.framework;
+
+import net.wesjd.towny.ngin.Towny;
+import net.wesjd.towny.ngin.command.framework.annotation.Async;
+import net.wesjd.towny.ngin.command.framework.annotation.Expensive;
+import net.wesjd.towny.ngin.command.framework.annotation.NetworkSafe;
+import net.wesjd.towny.ngin.command.framework.annotation.RateLimit;
+import net.wesjd.towny.ngin.command.framework.annotation.Requires;
+import net.wesjd.towny.ngin.command.framework.argument.ArgumentBinding;
+import net.wesjd.towny.ngin.command.framework.argument.Arguments;
+import net.wesjd.towny.ngin.command.framework.argument.provider.ArgumentProvider;
+import net.wesjd.towny.ngin.command.framework.argument.provider.AsyncArgumentProvider;
+import net.wesjd.towny.ngin.command.framework.argument.verifier.ArgumentVerifier;
+import net.wesjd.towny.ngin.metrics.LatencyHistogram;
+import net.wesjd.towny.ngin.metrics.Metrics;
+import net.wesjd.towny.ngin.player.Rank;
+import net.wesjd.towny.ngin.player.TownyPlayer;
+import net.wesjd.towny.ngin.util.Scheduling;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+import static org.bukkit.ChatColor.*;
+
+/**
+ * Everything needed to call a command method, resolved once when the command is registered
+ * so calling it doesn't need any reflection
+ */
+class InvocationPlan {
+
+    /**
+     * The rank needed to use the command, null if anyone can
+     */
+    private final Rank required;
+    /**
+     * How each argument after the sender is supplied and verified
+     */
+    private final ParameterPlan[] parameters;
+    /**
+     * Calls the method on its instance with every parameter in an array
+     */
+    private final MethodHandle invoker;
+    /**
+     * Whether the command runs off the main thread
+     */
+    private final boolean async;
+    /**
+     * Whether the command may run from whichever thread received it
+     */
+    private final boolean networkSafe;
+    /**
+     * Whether the command counts towards the cap on running expensive commands
+     */
+    private final boolean expensive;
+    /**
+     * The per player rate limit of the command, null if it has none
+     */
+    private final RateLimiter limiter;
+    /**
+     * The limits shared by every command
+     */
+    private final CommandLimits limits;
+    /**
+     * The time taken supplying the arguments, including waiting on async ones
+     */
+    private final LatencyHistogram resolveTimer;
+    /**
+     * The time taken running the verifier checks
+     */
+    private final LatencyHistogram verifyTimer;
+    /**
+     * The time taken by the command method itself
+     */
+    private final LatencyHistogram invokeTimer;
+    /**
+     * How many times the command was called, and how many of those failed
+     */
+    private final LongAdder calls, errors;
+    /**
+     * The full name of the command, such as "town warp"
+     */
+    private final String path;
+
+    /**
+     * Compiles the plan of a command method
+     *
+     * @param object The command class instance
+     * @param method The command method
+     * @param bindings The argument bindings by type
+     * @param verifiers Gets the verifiers for a parameter type
+     * @param limits The limits shared by every command
+     * @param path The full name of the command, such as "town warp", which names its metrics
+     * @param metrics The metrics to record the command's timings and counts in
+     * @throws RuntimeException If the method doesn't take the sender first, or takes a type nothing can supply
+     */
+    InvocationPlan(Object object, Method method, Map<Class<?>, ArgumentBinding<?>> bindings,
+                   Function<Class<?>, List<ArgumentVerifier<?>>> verifiers, CommandLimits limits,
+                   String path, Metrics metrics) {
+        final Requires requires = method.getAnnotation(Requires.class);
+        required = requires == null ? null : requires.value();
+        async = method.isAnnotationPresent(Async.class);
+        networkSafe = method.isAnnotationPresent(NetworkSafe.class);
+        expensive = method.isAnnotationPresent(Expensive.class);
+        final RateLimit rateLimit = method.getAnnotation(RateLimit.class);
+        limiter = rateLimit == null ? null : limits.limiter(rateLimit);
+        this.limits = limits;
+        this.path = path;
+        final String name = "command." + path.toLowerCase().replace(' ', '.');
+        resolveTimer = metrics.timer(name + ".resolve");
+        verifyTimer = metrics.timer(name + ".verify");
+        invokeTimer = metrics.timer(name + ".invoke");
+        calls = metrics.counter(name + ".calls");
+        errors = metrics.counter(name + ".errors");
+
+        final Parameter[] methodParameters = method.getParameters();
+        if(methodParameters.length == 0 || !methodParameters[0].getType().equals(TownyPlayer.class))
+            throw new RuntimeException("Command " + method.getName() + " must take sender as first parameter.");
+
+        parameters = new ParameterPlan[methodParameters.length - 1];
+        for(int i = 1; i < methodParameters.length; i++) {
+            final Parameter parameter = methodParameters[i];
+            final Class<?> type = parameter.getType();
+
+            ArgumentProvider<?> provider = null;
+            final ArgumentBinding<?> binding = bindings.get(type);
+            if(binding != null) {
+                final Class<? extends Annotation> annotation = binding.getAnnotation().orElse(null);
+                if(annotation == null || parameter.isAnnotationPresent(annotation)) provider = binding.getArgumentProvider();
+            }
+            if(provider == null && !type.isAssignableFrom(String.class))
+                throw new RuntimeException("Cannot convert " + type.getSimpleName() + " to required type.");
+
+            final List<ArgumentVerifier.Check> checks = new ArrayList<>();
+            for(ArgumentVerifier<?> verifier : verifiers.apply(type)) {
+                final ArgumentVerifier.Check<?> check = verifier.compile(parameter);
+                if(check != null) checks.add(check);
+            }
+            parameters[i - 1] = new ParameterPlan(parameter, provider, checks.toArray(new ArgumentVerifier.Check[0]));
+        }
+
+        try {
+            invoker = MethodHandles.lookup().unreflect(method)
+                    .bindTo(object)
+                    .asSpreader(Object[].class, methodParameters.length)
+                    .asType(MethodType.methodType(void.class, Object[].class));
+        } catch (IllegalAccessException ex) {
+            throw new RuntimeException("Unable to access command " + method.getName(), ex);
+        }
+    }
+
+    /**
+     * Checks whether a player may use the command
+     *
+     * @param caller The player
+     * @return Whether they have the required rank
+     */
+    boolean canUse(TownyPlayer caller) {
+        return required == null || caller.hasRank(required);
+    }
+
+    /**
+     * Checks whether the command may run from whichever thread received it, such as a network thread
+     *
+     * @return Whether the command is marked {@link NetworkSafe}
+     */
+    boolean isNetworkSafe() {
+        return networkSafe;
+    }
+
+    /**
+     * Suggests values for a partly typed argument
+     *
+     * @param index The position of the argument after the command's name
+     * @param prefix What has been typed so far
+     * @param limit The most suggestions to return
+     * @return The suggestions of the argument's provider, empty if it has none
+     */
+    List<String> suggest(int index, String prefix, int limit) {
+        if(index >= parameters.length || parameters[index].provider == null || limit <= 0) return Collections.emptyList();
+
+        final ParameterPlan parameter = parameters[index];
+        return parameter.provider.suggest(parameter.parameter, prefix, limit);
+    }
+
+    /**
+     * Supplies, verifies and calls the command.
+     * Commands with async arguments are called once they all resolve, back on the main thread unless the command
+     * is async or network safe.
+     *
+     * @param caller The player calling the command
+     * @param arguments The arguments left after the command's name
+     * @param executor The executor for async arguments and commands
+     */
+    void invoke(TownyPlayer caller, Arguments arguments, Executor executor) {
+        calls.increment();
+        if(required != null && !caller.hasRank(required)) {
+            caller.getWrapped().sendMessage(RED + "You need the rank " + BLUE + required + RED + " to use this command!");
+            return;
+        }
+        if(limiter != null) {
+            final long wait = limiter.tryAcquire(caller.getUuid());
+            if(wait > 0) {
+                caller.getWrapped().sendMessage(RED + "You're using that command too quickly, try again in "
+                        + (TimeUnit.NANOSECONDS.toSeconds(wait) + 1) + "s.");
+                return;
+            }
+        }
+        if(expensive && !limits.enterExpensive()) {
+            caller.getWrapped().sendMessage(RED + "The server is busy with that kind of command, try again in a moment.");
+            return;
+        }
+
+        boolean deferred = false;
+        try {
+            deferred = supplyAndCall(caller, arguments, executor);
+        } catch (RuntimeException ex) {
+            fail(caller, ex);
+        } finally {
+            if(expensive && !deferred) limits.exitExpensive();
+        }
+    }
+
+    /**
+     * Supplies the arguments and calls the command, now or once its async arguments resolve
+     *
+     * @param caller The player calling the command
+     * @param arguments The arguments left after the command's name
+     * @param executor The executor for async arguments and commands
+     * @return Whether the command was deferred, in which case it releases its expensive slot itself
+     */
+    private boolean supplyAndCall(TownyPlayer caller, Arguments arguments, Executor executor) {
+        final long start = System.nanoTime();
+        final Object[] supplied = new Object[parameters.length + 1];
+        supplied[0] = caller;
+        CompletableFuture<?>[] pending = null;
+        for(int i = 0; i < parameters.length; i++) {
+            final ParameterPlan parameter = parameters[i];
+            if(!arguments.hasNext()) continue;
+
+            if(parameter.provider instanceof AsyncArgumentProvider) {
+                if(pending == null) pending = new CompletableFuture<?>[parameters.length];
+                pending[i] = ((AsyncArgumentProvider<?>) parameter.provider).getAsync(parameter.parameter, arguments, executor);
+            } else if(parameter.provider == null) supplied[i + 1] = arguments.next();
+            else supplied[i + 1] = parameter.provider.get(parameter.parameter, arguments);
+        }
+
+        if(pending == null && !async) {
+            resolveTimer.recordSince(start);
+            verifyAndCall(caller, supplied);
+            return false;
+        }
+
+        final CompletableFuture<?>[] futures = pending == null ? new CompletableFuture<?>[0] : pending;
+        CompletableFuture.allOf(Arrays.stream(futures).filter(Objects::nonNull).toArray(CompletableFuture[]::new))
+                .thenRunAsync(() -> {
+                    for(int i = 0; i < futures.length; i++) {
+                        if(futures[i] != null) supplied[i + 1] = futures[i].join();
+                    }
+                    resolveTimer.recordSince(start);
+                    if(caller.getWrapped().isOnline()) verifyAndCall(caller, supplied);
+                }, async || networkSafe ? executor : Scheduling.mainThread())
+                .whenComplete((result, ex) -> {
+                    if(expensive) limits.exitExpensive();
+                    if(ex != null) fail(caller, ex);
+                });
+        return true;
+    }
+
+    /**
+     * Verifies the supplied arguments and calls the command if they pass
+     *
+     * @param caller The player calling the command
+     * @param supplied The sender followed by every argument
+     */
+    private void verifyAndCall(TownyPlayer caller, Object[] supplied) {
+        final long verifyStart = System.nanoTime();
+        final String failure = verify(supplied);
+        final long invokeStart = System.nanoTime();
+        verifyTimer.record(invokeStart - verifyStart);
+        if(failure != null) {
+            caller.getWrapped().sendMessage(RED + failure);
+            return;
+        }
+
+        try {
+            invoker.invokeExact(supplied);
+        } catch (Throwable ex) {
+            fail(caller, ex);
+        } finally {
+            invokeTimer.recordSince(invokeStart);
+        }
+    }
+
+    /**
+     * Runs the checks compiled for each argument
+     *
+     * @param supplied The sender followed by every argument
+     * @return The first failure message, or null if every argument passed
+     */
+    @SuppressWarnings("unchecked")
+    String verify(Object[] supplied) {
+        for(int i = 0; i < parameters.length; i++) {
+            for(ArgumentVerifier.Check check : parameters[i].checks) {
+                final String failure = check.verify(supplied[i + 1]);
+                if(failure != null) return failure;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts a failure of the command, tells the caller and logs why
+     *
+     * @param caller The player calling the command
+     * @param ex The cause of the failure
+     */
+    private void fail(TownyPlayer caller, Throwable ex) {
+        errors.increment();
+        Towny.getPlugin().getLogger().log(Level.SEVERE, "Unable to run the command /" + path + " for " + caller.getName(), ex);
+        caller.getWrapped().sendMessage(RED + "Something went wrong running that command, please try again later.");
+    }
+
+    /**
+     * How a single argument is supplied and verified
+     */
+    private static class ParameterPlan {
+
+        /**
+         * The method parameter, passed to the provider for its annotations
+         */
+        private final Parameter parameter;
+        /**
+         * The bound provider, null to supply the raw argument
+         */
+        private final ArgumentProvider<?> provider;
+        /**
+         * The checks compiled for the parameter, from the verifiers of its type and every type
+         */
+        private final ArgumentVerifier.Check[] checks;
+
+        ParameterPlan(Parameter parameter, ArgumentProvider<?> provider, ArgumentVerifier.Check[] checks) {
+            this.parameter = parameter;
+            this.provider = provider;
+            this.checks = checks;
+        }
+
+    }
+
+}
@@ -0,0 +1,100 @@
+package net.wesjd.towny.ngin.command.framework;
+
+/**
+ * A case-insensitive open addressing table from command labels to values,
+ * looked up straight from a region of the typed message so unknown commands never allocate
+ *
+ * @param <V> The type of the values
+ */
+class LabelTable<V> {
+
+    /**
+     * The lowercase labels, null for empty slots
+     */
+    private String[] labels = new String[16];
+    /**
+     * The value for the label in the same slot
+     */
+    private Object[] values = new Object[16];
+    /**
+     * The amount of labels in the table
+     */
+    private int size;
+
+    /**
+     * Adds a label, replacing the value of an existing one
+     *
+     * @param label The label, matched ignoring case
+     * @param value The value for the label
+     */
+    void put(String label, V value) {
+        if((size + 1) * 2 > labels.length) resize(labels.length * 2);
+
+        final String lower = label.toLowerCase();
+        int slot = hash(lower, 0, lower.length()) & (labels.length - 1);
+        while(labels[slot] != null) {
+            if(labels[slot].equals(lower)) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & (labels.length - 1);
+        }
+        labels[slot] = lower;
+        values[slot] = value;
+        size++;
+    }
+
+    /**
+     * Gets the value of a label
+     *
+     * @param text The text the label is in
+     * @param from Where the label starts in the text
+     * @param to Where the label ends in the text, exclusive
+     * @return The value, or null if there's no such label
+     */
+    @SuppressWarnings("unchecked")
+    V get(String text, int from, int to) {
+        final int length = to - from;
+        if(length <= 0) return null;
+
+        int slot = hash(text, from, to) & (labels.length - 1);
+        String label;
+        while((label = labels[slot]) != null) {
+            if(label.length() == length && label.regionMatches(true, 0, text, from, length)) return (V) values[slot];
+            slot = (slot + 1) & (labels.length - 1);
+        }
+        return null;
+    }
+
+    /**
+     * Gets the value of a whole label
+     *
+     * @param label The label, ignoring case
+     * @return The value, or null if there's no such label
+     */
+    V get(String label) {
+        return get(label, 0, label.length());
+    }
+
+    /**
+     * Hashes a region of text ignoring case
+     */
+    private static int hash(String text, int from, int to) {
+        int hash = 0;
+        for(int i = from; i < to; i++) hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+        return hash ^ (hash >>> 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        final String[] oldLabels = labels;
+        final Object[] oldValues = values;
+        labels = new String[capacity];
+        values = new Object[capacity];
+        size = 0;
+        for(int i = 0; i < oldLabels.length; i++) {
+            if(oldLabels[i] != null) put(oldLabels[i], (V) oldValues[i]);
+        }
+    }
+
+}
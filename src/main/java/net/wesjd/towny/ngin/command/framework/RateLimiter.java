@@ -0,0 +1,84 @@
+package net.wesjd.towny.ngin.command.framework;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket per player, kept as the time the player's bucket will next be full
+ * so each use is a single compare-and-set
+ */
+class RateLimiter {
+
+    /**
+     * The nanoseconds it takes to refill one use
+     */
+    private final long interval;
+    /**
+     * How far ahead of now a bucket may be before it's empty
+     */
+    private final long tolerance;
+    /**
+     * The time each player's bucket will be full again
+     */
+    private final Map<UUID, AtomicLong> fullAt = new ConcurrentHashMap<>();
+    /**
+     * The source of the current time in nanoseconds
+     */
+    private final LongSupplier clock;
+
+    /**
+     * Creates a limiter
+     *
+     * @param uses How many uses a player gets per period
+     * @param seconds The length of the period
+     */
+    RateLimiter(int uses, int seconds) {
+        this(uses, seconds, System::nanoTime);
+    }
+
+    /**
+     * Creates a limiter with its own clock
+     *
+     * @param uses How many uses a player gets per period
+     * @param seconds The length of the period
+     * @param clock The source of the current time in nanoseconds
+     */
+    RateLimiter(int uses, int seconds, LongSupplier clock) {
+        interval = TimeUnit.SECONDS.toNanos(seconds) / Math.max(1, uses);
+        tolerance = interval * (Math.max(1, uses) - 1);
+        this.clock = clock;
+    }
+
+    /**
+     * Takes a use from a player's bucket
+     *
+     * @param uuid The player's uuid
+     * @return 0 if the use was taken, otherwise the nanoseconds until the player may try again
+     */
+    long tryAcquire(UUID uuid) {
+        final long now = clock.getAsLong();
+        final AtomicLong bucket = fullAt.computeIfAbsent(uuid, key -> new AtomicLong(now));
+
+        long current, next;
+        do {
+            current = bucket.get();
+            final long start = current - now > 0 ? current : now;
+            if(start - now > tolerance) return start - now - tolerance;
+            next = start + interval;
+        } while(!bucket.compareAndSet(current, next));
+        return 0;
+    }
+
+    /**
+     * Forgets the players whose buckets are full again
+     */
+    void cleanUp() {
+        final long now = clock.getAsLong();
+        fullAt.values().removeIf(bucket -> bucket.get() - now <= 0);
+    }
+
+}
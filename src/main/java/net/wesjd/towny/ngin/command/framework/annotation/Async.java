@@ -0,0 +1,12 @@
+package net.wesjd.towny.ngin.command.framework.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Runs a command off the main thread, use {@link net.wesjd.towny.ngin.util.Scheduling#mainThread()} for any Bukkit calls
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Async {
+}
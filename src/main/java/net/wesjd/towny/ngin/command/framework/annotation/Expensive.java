@@ -0,0 +1,12 @@
+package net.wesjd.towny.ngin.command.framework.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a command that does slow work, only a few of which may run at once across the server
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Expensive {
+}
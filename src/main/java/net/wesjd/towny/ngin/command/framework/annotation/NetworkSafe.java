@@ -0,0 +1,15 @@
+package net.wesjd.towny.ngin.command.framework.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a command, along with the providers and verifiers of its arguments, as safe to run from any thread.
+ * With packet dispatch enabled the command runs straight from the network thread that received it,
+ * so it never waits on a busy tick. Only use it for commands that read thread safe state and send messages,
+ * never for ones that iterate plain collections changed on the main thread or may load anything from disk.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NetworkSafe {
+}
@@ -0,0 +1,24 @@
+package net.wesjd.towny.ngin.command.framework.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * Limits how often each player may use a command.
+ * Players get a burst of uses, refilled evenly over the period.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimit {
+
+    /**
+     * How many times the command may be used per period
+     */
+    int uses();
+
+    /**
+     * The length of the period in seconds
+     */
+    int seconds();
+
+}
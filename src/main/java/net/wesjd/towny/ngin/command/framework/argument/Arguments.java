@@ -34,6 +34,15 @@ public class Arguments {
         return arguments[position++];
     }
 
+    /**
+     * Get the next argument without moving past it
+     *
+     * @return The next argument
+     */
+    public String peek() {
+        return arguments[position];
+    }
+
     /**
      * Get the next argument in the array, safely
      *
@@ -3,6 +3,8 @@ package net.wesjd.towny.ngin.command.framework.argument.provider;
 import net.wesjd.towny.ngin.command.framework.argument.Arguments;
 
 import java.lang.reflect.Parameter;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Provides a value for a command argument
@@ -18,4 +20,16 @@ public interface ArgumentProvider<T> {
      */
     T get(Parameter parameter, Arguments arguments);
 
+    /**
+     * Called to suggest values for a partly typed argument, possibly off the main thread
+     *
+     * @param parameter The parameter of the method
+     * @param prefix What has been typed so far
+     * @param limit The most suggestions to return
+     * @return The suggestions, none by default
+     */
+    default List<String> suggest(Parameter parameter, String prefix, int limit) {
+        return Collections.emptyList();
+    }
+
 }
@@ -0,0 +1,31 @@
+package net.wesjd.towny.ngin.command.framework.argument.provider;
+
+import net.wesjd.towny.ngin.command.framework.argument.Arguments;
+
+import java.lang.reflect.Parameter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Provides a value for a command argument that may need slow work, such as disk or network lookups.
+ * The command waits for every async argument, resolving them in parallel, before it's verified and called.
+ */
+public interface AsyncArgumentProvider<T> extends ArgumentProvider<T> {
+
+    /**
+     * Called to start getting the parameter value for the argument.
+     * The arguments must be read before returning, only the lookup itself may run later.
+     *
+     * @param parameter The parameter of the method
+     * @param arguments The command's arguments
+     * @param executor The executor to do slow work on
+     * @return A future of the generated object
+     */
+    CompletableFuture<T> getAsync(Parameter parameter, Arguments arguments, Executor executor);
+
+    @Override
+    default T get(Parameter parameter, Arguments arguments) {
+        return getAsync(parameter, arguments, Runnable::run).join();
+    }
+
+}
@@ -1,11 +1,20 @@
 package net.wesjd.towny.ngin.command.framework.argument.provider;
 
 import net.wesjd.towny.ngin.command.framework.argument.Arguments;
+import net.wesjd.towny.ngin.util.PrefixIndex;
 
 import java.lang.reflect.Parameter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class EnumProvider<E extends Enum<E>> implements ArgumentProvider<Enum<E>> {
 
+    /**
+     * The lowercase names of each enum's constants, built on first use
+     */
+    private final Map<Class<?>, PrefixIndex<String>> names = new ConcurrentHashMap<>();
+
     @Override
     public Enum<E> get(Parameter parameter, Arguments arguments) {
         try {
@@ -15,4 +24,16 @@ public class EnumProvider<E extends Enum<E>> implements ArgumentProvider<Enum<E>
         }
     }
 
+    @Override
+    public List<String> suggest(Parameter parameter, String prefix, int limit) {
+        return names.computeIfAbsent(parameter.getType(), type -> {
+            final PrefixIndex<String> index = new PrefixIndex<>();
+            for(Object constant : type.getEnumConstants()) {
+                final String name = ((Enum<?>) constant).name().toLowerCase();
+                index.put(name, name);
+            }
+            return index;
+        }).complete(prefix, limit);
+    }
+
 }
@@ -0,0 +1,21 @@
+package net.wesjd.towny.ngin.command.framework.argument.provider;
+
+import net.wesjd.towny.ngin.command.framework.argument.Arguments;
+
+import java.lang.reflect.Parameter;
+
+/**
+ * Provider for {@link Integer}s
+ */
+public class IntegerProvider implements ArgumentProvider<Integer> {
+
+    @Override
+    public Integer get(Parameter parameter, Arguments arguments) {
+        try {
+            return Integer.parseInt(arguments.next());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+}
@@ -3,39 +3,52 @@ package net.wesjd.towny.ngin.command.framework.argument.provider;
 import net.wesjd.towny.ngin.command.framework.argument.Arguments;
 import net.wesjd.towny.ngin.player.OfflineTownyPlayer;
 import net.wesjd.towny.ngin.player.PlayerManager;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
 
 import javax.inject.Inject;
 import java.lang.reflect.Parameter;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
- * Provider for {@link OfflineTownyPlayer}s
+ * Provider for {@link OfflineTownyPlayer}s, resolved off the main thread since it may need a name lookup and a disk read
  */
-public class OfflineTownyPlayerProvider implements ArgumentProvider<OfflineTownyPlayer> {
+public class OfflineTownyPlayerProvider implements AsyncArgumentProvider<OfflineTownyPlayer> {
 
     @Inject
     private PlayerManager playerManager;
 
     @Override
-    public OfflineTownyPlayer get(Parameter parameter, Arguments arguments) {
+    public CompletableFuture<OfflineTownyPlayer> getAsync(Parameter parameter, Arguments arguments, Executor executor) {
         final String input = arguments.next();
+        return CompletableFuture.supplyAsync(() -> resolve(input), executor);
+    }
+
+    @Override
+    public List<String> suggest(Parameter parameter, String prefix, int limit) {
+        return playerManager.completeName(prefix, limit);
+    }
 
+    /**
+     * Finds a player by their uuid or name.
+     * Names are resolved from the ledger when possible, and a failed name lookup fails the command rather than
+     * reading as an unknown player.
+     *
+     * @param input The uuid or name
+     * @return The player, or null if there's no such player
+     * @throws RuntimeException If the name couldn't be looked up
+     */
+    private OfflineTownyPlayer resolve(String input) {
         UUID uuid;
         try {
             uuid = UUID.fromString(input);
         } catch (IllegalArgumentException e) {
-            try {
-                uuid = playerManager.getUUIDFor(input);
-            } catch (RuntimeException ex) {
-                return null;
-            }
+            uuid = playerManager.getUUIDFor(input);
+            if(uuid == null) return null;
         }
 
-        final Player online = Bukkit.getPlayer(uuid);
-        if(online != null) return playerManager.getPlayer(online);
-        else return playerManager.createOfflineTownyPlayer(uuid);
+        return playerManager.getOfflinePlayer(uuid);
     }
 
 }
@@ -17,4 +17,33 @@ public interface ArgumentVerifier<T> {
      */
     String verify(Parameter parameter, T object);
 
+    /**
+     * Prepares the check of a single parameter, called once when its command is registered.
+     * Verifiers should read the parameter's annotations and compile anything they need here.
+     *
+     * @param parameter The method parameter
+     * @return The check, or null if the verifier never applies to the parameter
+     */
+    default Check<T> compile(Parameter parameter) {
+        return object -> verify(parameter, object);
+    }
+
+    /**
+     * A verifier prepared for a single parameter
+     *
+     * @param <T> The type of argument
+     */
+    @FunctionalInterface
+    interface Check<T> {
+
+        /**
+         * Verifies an object
+         *
+         * @param object The object that has been supplied for the parameter
+         * @return A string containing the error message, or null if none
+         */
+        String verify(T object);
+
+    }
+
 }
@@ -3,16 +3,24 @@ package net.wesjd.towny.ngin.command.framework.argument.verifier;
 import net.wesjd.towny.ngin.command.framework.annotation.parameter.Regex;
 
 import java.lang.reflect.Parameter;
+import java.util.regex.Pattern;
 
 public class RegexVerifier implements ArgumentVerifier<String> {
 
     @Override
     public String verify(Parameter parameter, String object) {
-        if(parameter.isAnnotationPresent(Regex.class)) {
-            final Regex annotation = parameter.getAnnotation(Regex.class);
-            if(object == null || !object.matches(annotation.exp())) return annotation.fail();
-        }
-        return null;
+        final Check<String> check = compile(parameter);
+        return check == null ? null : check.verify(object);
+    }
+
+    @Override
+    public Check<String> compile(Parameter parameter) {
+        final Regex annotation = parameter.getAnnotation(Regex.class);
+        if(annotation == null) return null;
+
+        final Pattern pattern = Pattern.compile(annotation.exp());
+        final String fail = annotation.fail();
+        return object -> object == null || !pattern.matcher(object).matches() ? fail : null;
     }
 
 }
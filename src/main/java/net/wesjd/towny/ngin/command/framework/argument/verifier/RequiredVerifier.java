@@ -12,4 +12,13 @@ public class RequiredVerifier implements ArgumentVerifier<Object> {
         return null;
     }
 
+    @Override
+    public Check<Object> compile(Parameter parameter) {
+        final Required annotation = parameter.getAnnotation(Required.class);
+        if(annotation == null) return null;
+
+        final String fail = annotation.fail();
+        return object -> object == null ? fail : null;
+    }
+
 }
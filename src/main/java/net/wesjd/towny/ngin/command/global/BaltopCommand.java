@@ -0,0 +1,52 @@
+package net.wesjd.towny.ngin.command.global;
+
+import com.google.inject.Inject;
+import net.wesjd.towny.ngin.command.framework.Commandable;
+import net.wesjd.towny.ngin.command.framework.annotation.Command;
+import net.wesjd.towny.ngin.command.framework.annotation.NetworkSafe;
+import net.wesjd.towny.ngin.player.BalanceLedger;
+import net.wesjd.towny.ngin.player.TownyPlayer;
+import net.wesjd.towny.ngin.util.Leaderboard;
+import net.wesjd.towny.ngin.util.Money;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.bukkit.ChatColor.*;
+
+/**
+ * /baltop command
+ */
+public class BaltopCommand implements Commandable {
+
+    /**
+     * The amount of players shown on each page
+     */
+    private static final int PAGE_SIZE = 10;
+
+    /**
+     * The injected balance ledger
+     */
+    @Inject
+    private BalanceLedger ledger;
+
+    @Command(name = "baltop")
+    @NetworkSafe
+    private void baltopCommand(TownyPlayer player, Integer page) {
+        final int pages = Math.max(1, (ledger.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        final int shown = page == null ? 1 : Math.max(1, Math.min(page, pages));
+
+        player.message(YELLOW + "----- [ Richest players " + GREEN + "(" + shown + "/" + pages + ")" + YELLOW + " ] -----");
+        final List<Leaderboard.Entry<UUID>> entries = ledger.top((shown - 1) * PAGE_SIZE, PAGE_SIZE);
+        if(entries.isEmpty()) player.message(RED + "Nobody has any money yet.");
+        else entries.forEach(entry -> {
+            final String name = ledger.getName(entry.getKey());
+            player.message(GOLD + "#" + entry.getRank() + " " + RED + (name == null ? entry.getKey().toString() : name)
+                    + YELLOW + " - " + Money.format(entry.getScore()));
+        });
+
+        player.message(YELLOW + "You are " + GOLD + "#" + ledger.rankOf(player.getUuid())
+                + YELLOW + " with " + Money.format(ledger.getBalance(player.getUuid())));
+    }
+
+}
@@ -0,0 +1,88 @@
+package net.wesjd.towny.ngin.command.global;
+
+import com.google.inject.Inject;
+import net.wesjd.towny.ngin.command.framework.Commandable;
+import net.wesjd.towny.ngin.command.framework.annotation.Command;
+import net.wesjd.towny.ngin.command.framework.annotation.NetworkSafe;
+import net.wesjd.towny.ngin.command.framework.annotation.Requires;
+import net.wesjd.towny.ngin.command.framework.annotation.SubCommand;
+import net.wesjd.towny.ngin.metrics.LatencyHistogram;
+import net.wesjd.towny.ngin.metrics.Metrics;
+import net.wesjd.towny.ngin.player.Rank;
+import net.wesjd.towny.ngin.player.TownyPlayer;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.bukkit.ChatColor.*;
+
+/**
+ * /ngin command, for looking at the plugin's own health
+ */
+public class NginCommand implements Commandable {
+
+    /**
+     * The injected metrics
+     */
+    @Inject
+    private Metrics metrics;
+
+    @Command(name = "ngin")
+    @Requires(Rank.ADMIN)
+    private void nginCommand(TownyPlayer player) {
+        player.message(YELLOW + "----- [ ngin ] -----");
+        player.message(GOLD + "/ngin stats [filter]" + YELLOW + " - Shows timings and counts since the last reset");
+        player.message(GOLD + "/ngin stats reset" + YELLOW + " - Starts a new window of timings and counts");
+    }
+
+    @SubCommand(of = "ngin", name = "stats")
+    @Requires(Rank.ADMIN)
+    @NetworkSafe
+    private void statsCommand(TownyPlayer player, String filter) {
+        final String lowerFilter = filter == null ? null : filter.toLowerCase();
+        player.message(YELLOW + "----- [ Timers " + GREEN + "(p50 / p99 / max)" + YELLOW + " ] -----");
+        boolean any = false;
+        for(Map.Entry<String, LatencyHistogram> entry : metrics.getTimers().entrySet()) {
+            final LatencyHistogram timer = entry.getValue();
+            if(timer.getCount() == 0 || (lowerFilter != null && !entry.getKey().contains(lowerFilter))) continue;
+
+            any = true;
+            player.message(GOLD + entry.getKey() + YELLOW + " x" + timer.getCount() + " "
+                    + RED + formatNanos(timer.getPercentile(50)) + YELLOW + " / "
+                    + RED + formatNanos(timer.getPercentile(99)) + YELLOW + " / "
+                    + RED + formatNanos(timer.getMax()));
+        }
+        if(!any) player.message(RED + "Nothing has been timed yet.");
+
+        player.message(YELLOW + "----- [ Counters ] -----");
+        any = false;
+        for(Map.Entry<String, LongAdder> entry : metrics.getCounters().entrySet()) {
+            final long count = entry.getValue().sum();
+            if(count == 0 || (lowerFilter != null && !entry.getKey().contains(lowerFilter))) continue;
+
+            any = true;
+            player.message(GOLD + entry.getKey() + YELLOW + " - " + RED + count);
+        }
+        if(!any) player.message(RED + "Nothing has been counted yet.");
+    }
+
+    @SubCommand(of = "ngin stats", name = "reset")
+    @Requires(Rank.ADMIN)
+    private void resetCommand(TownyPlayer player) {
+        metrics.reset();
+        player.message(GREEN + "Every timer and counter has been reset.");
+    }
+
+    /**
+     * Formats a duration in the most readable unit
+     *
+     * @param nanos The duration in nanoseconds
+     * @return The formatted duration, such as "1.25ms"
+     */
+    private static String formatNanos(long nanos) {
+        if(nanos >= 1_000_000) return String.format("%.2fms", nanos / 1_000_000.0);
+        if(nanos >= 1_000) return String.format("%.1fus", nanos / 1_000.0);
+        return nanos + "ns";
+    }
+
+}
@@ -2,15 +2,15 @@ package net.wesjd.towny.ngin.command.global;
 
 import net.wesjd.towny.ngin.command.framework.Commandable;
 import net.wesjd.towny.ngin.command.framework.annotation.Command;
+import net.wesjd.towny.ngin.command.framework.annotation.Expensive;
+import net.wesjd.towny.ngin.command.framework.annotation.NetworkSafe;
+import net.wesjd.towny.ngin.command.framework.annotation.RateLimit;
 import net.wesjd.towny.ngin.command.framework.annotation.Requires;
 import net.wesjd.towny.ngin.command.framework.annotation.SubCommand;
 import net.wesjd.towny.ngin.command.framework.annotation.parameter.Required;
 import net.wesjd.towny.ngin.player.OfflineTownyPlayer;
 import net.wesjd.towny.ngin.player.Rank;
 import net.wesjd.towny.ngin.player.TownyPlayer;
-import org.bukkit.permissions.Permission;
-
-import java.util.Optional;
 
 import static org.bukkit.ChatColor.*;
 
@@ -20,6 +20,7 @@ import static org.bukkit.ChatColor.*;
 public class RankCommand implements Commandable {
 
     @Command(name = "rank")
+    @NetworkSafe
     private void rankCommand(TownyPlayer player) {
         final Rank rank = player.getRank();
         player.message(YELLOW + "You currently have the global rank of " + rank.getColor() + rank.toString());
@@ -27,6 +28,8 @@ public class RankCommand implements Commandable {
 
     @SubCommand(of = "rank", name = "set")
     @Requires(Rank.ADMIN)
+    @Expensive
+    @RateLimit(uses = 3, seconds = 10)
     private void rankSetCommand(TownyPlayer player,
                                 @Required(fail = "Please supply a player name or uuid.") OfflineTownyPlayer target,
                                 @Required(fail = "Please supply a valid rank.") Rank rank) {
@@ -38,7 +41,7 @@ public class RankCommand implements Commandable {
     @SubCommand(of = "rank", name = "perm")
     @Requires(Rank.ADMIN)
     private void rankPermCommand(TownyPlayer player) {
-        player.message(RED + "Usage: /rank perm <add|remove|list> [rank] [node]");
+        player.message(RED + "Usage: /rank perm <add|remove|check|list> [rank] [node]");
     }
 
     @SubCommand(of = "rank perm", name = "add")
@@ -46,9 +49,8 @@ public class RankCommand implements Commandable {
     private void rankPermAddCommand(TownyPlayer player,
                                    @Required(fail = "Please supply a valid rank.") Rank rank,
                                    @Required(fail = "Please supply a permission node.") String node) {
-        if(rankHasNode(rank, node)) player.message(RED + "Rank " + formatRank(rank) + RED + " already has that node!");
+        if(!rank.addPermission(node)) player.message(RED + "Rank " + formatRank(rank) + RED + " already has that node!");
         else {
-            rank.getPermissions().add(new Permission(node));
             rank.recalculatePermissions();
             rank.savePermissions();
             player.message(GREEN + "Added node " + YELLOW + node + GREEN + " to rank " + formatRank(rank) + GREEN + ".");
@@ -60,14 +62,23 @@ public class RankCommand implements Commandable {
     private void rankPermRemoveCommand(TownyPlayer player,
                                        @Required(fail = "Please supply a valid rank.") Rank rank,
                                        @Required(fail = "Please supply a permission node.") String node) {
-        if(rankHasNode(rank, node)) {
-            rank.getPermissions().remove(getPermission(rank, node).get());
+        if(rank.removePermission(node)) {
             rank.recalculatePermissions();
             rank.savePermissions();
             player.message(GREEN + "Removed node " + YELLOW + node + GREEN + " from the " + formatRank(rank) + GREEN + ".");
         } else player.message(RED + "Rank " + formatRank(rank) + RED + " doesn't have the node " + YELLOW + node + RED + "!");
     }
 
+    @SubCommand(of = "rank perm", name = "check")
+    @Requires(Rank.ADMIN)
+    private void rankPermCheckCommand(TownyPlayer player,
+                                      @Required(fail = "Please supply a valid rank.") Rank rank,
+                                      @Required(fail = "Please supply a permission node.") String node) {
+        if(rank.hasNode(node)) player.message(GREEN + "Rank " + formatRank(rank) + GREEN + " has the node " + YELLOW + node + GREEN + ".");
+        else if(rank.hasPermission(node)) player.message(GREEN + "Rank " + formatRank(rank) + GREEN + " is granted " + YELLOW + node + GREEN + " by a wildcard.");
+        else player.message(RED + "Rank " + formatRank(rank) + RED + " isn't granted " + YELLOW + node + RED + ".");
+    }
+
     @SubCommand(of = "rank perm", name = "list")
     @Requires(Rank.ADMIN)
     private void rankPermListCommand(TownyPlayer player,
@@ -87,28 +98,4 @@ public class RankCommand implements Commandable {
         return rank.getColor() + rank.toString();
     }
 
-    /**
-     * Whether the specified rank has the node supplied
-     *
-     * @param rank The rank to check
-     * @param node The node to check
-     * @return Whether the rank has the node
-     */
-    private boolean rankHasNode(Rank rank, String node) {
-        return getPermission(rank, node).isPresent();
-    }
-
-    /**
-     * Gets a possible permission that the provided rank has
-     *
-     * @param rank The rank to get the permission from
-     * @param node The node to get
-     * @return An {@link Optional} containing a possible permission object
-     */
-    private Optional<Permission> getPermission(Rank rank, String node) {
-        return rank.getPermissions().stream()
-                .filter(perm -> perm.getName().equals(node))
-                .findFirst();
-    }
-
 }
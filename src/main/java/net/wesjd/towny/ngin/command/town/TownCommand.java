@@ -2,18 +2,30 @@ package net.wesjd.towny.ngin.command.town;
 
 import com.google.inject.Inject;
 import mkremins.fanciful.FancyMessage;
+import net.wesjd.towny.ngin.Towny;
+import net.wesjd.towny.ngin.command.framework.Commandable;
 import net.wesjd.towny.ngin.command.framework.annotation.Command;
+import net.wesjd.towny.ngin.command.framework.annotation.NetworkSafe;
+import net.wesjd.towny.ngin.command.framework.annotation.RateLimit;
 import net.wesjd.towny.ngin.command.framework.annotation.SubCommand;
 import net.wesjd.towny.ngin.command.framework.annotation.parameter.Regex;
+import net.wesjd.towny.ngin.command.framework.annotation.parameter.Required;
 import net.wesjd.towny.ngin.player.PlayerManager;
 import net.wesjd.towny.ngin.player.TownyPlayer;
 import net.wesjd.towny.ngin.town.Town;
 import net.wesjd.towny.ngin.town.TownManager;
+import net.wesjd.towny.ngin.town.TownMetric;
+import net.wesjd.towny.ngin.town.TownPermissions;
+import net.wesjd.towny.ngin.town.TownStatistics;
+import net.wesjd.towny.ngin.util.Leaderboard;
+import net.wesjd.towny.ngin.util.Money;
+import net.wesjd.towny.ngin.util.Region;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.permissions.Permission;
 
-import java.text.NumberFormat;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -23,13 +35,22 @@ import static org.bukkit.ChatColor.*;
 /**
  * Contains all subcommands for the /town command
  */
-public class TownCommand {
+public class TownCommand implements Commandable {
 
     /**
      * Matches only valid names for warps
      */
     private static final Pattern VALID_WARP = Pattern.compile("^(\\w{1,16})$");
+    /**
+     * The amount of towns shown on each page of /town top
+     */
+    private static final int TOP_PAGE_SIZE = 10;
 
+    /**
+     * The injected main class instance
+     */
+    @Inject
+    private Towny towny;
     /**
      * An injected town manager
      */
@@ -40,6 +61,11 @@ public class TownCommand {
      */
     @Inject
     private PlayerManager playerManager;
+    /**
+     * The injected town statistics
+     */
+    @Inject
+    private TownStatistics statistics;
 
     @Command(name = "town")
     public void onTownCommand(TownyPlayer player) {
@@ -47,15 +73,17 @@ public class TownCommand {
     }
 
     @SubCommand(of = "town", name = "create")
+    @RateLimit(uses = 2, seconds = 60)
     public void handleTown(TownyPlayer player,
                            @Regex(exp = "^(\\w{1,16})$", fail = "Please supply a valid town name, 1-16 characters.") String name) {
         if (townManager.getTownSafely(name).isPresent()) {
             player.message(RED + "A town with the name " + name + " already exists");
+        } else if (player.getTown() != null) {
+            player.message(RED + "You're already a part of " + player.getTown().getName());
         } else {
             final Town newTown = townManager.createTown(name);
             newTown.generateDefaultRanks(player);
             townManager.addTown(newTown);
-            player.setTown(newTown);
 
             player.message(GREEN + "Created a town with the name of " + YELLOW + name + GREEN + "!");
         }
@@ -68,7 +96,7 @@ public class TownCommand {
             final Town town = player.getTown();
             player.message(YELLOW + "----- [ About " + GREEN + town.getName() + YELLOW + " ] -----");
             player.message(YELLOW + "Your rank: " + RED + town.getTownRankFor(player).getDisplayName());
-            player.message(YELLOW + "Town money: " + RED + NumberFormat.getCurrencyInstance().format(town.getMoney()));
+            player.message(YELLOW + "Town money: " + RED + Money.format(town.getMoney()));
 
             final Set<String> warps = town.getWarps().keySet();
             if (warps.isEmpty()) player.message(YELLOW + "Warps: " + RED + "None");
@@ -79,6 +107,49 @@ public class TownCommand {
         }
     }
 
+    @SubCommand(of = "town", name = "claim")
+    @RateLimit(uses = 3, seconds = 10)
+    public void handleClaim(TownyPlayer player,
+                            @Required(fail = "Please supply the radius to claim around you.") Integer radius) {
+        final Town town = player.getTown();
+        final int maxRadius = towny.getConfig().getInt("towns.max-claim-radius", 64);
+        if (town == null) player.message(RED + "You aren't a part of any town!");
+        else if (!hasPermission(player, TownPermissions.TOWN_CLAIM))
+            player.message(RED + "You don't have permission to " + TownPermissions.TOWN_CLAIM.getDescription() + ".");
+        else if (radius < 1 || radius > maxRadius)
+            player.message(RED + "The radius must be between 1 and " + maxRadius + " blocks.");
+        else {
+            final Location location = player.getWrapped().getLocation();
+            final World world = location.getWorld();
+            final int x = location.getBlockX(), z = location.getBlockZ();
+            final Region region = new Region(world, x - radius, 0, z - radius, x + radius, world.getMaxHeight() - 1, z + radius);
+
+            final Set<String> conflicts = townManager.claim(town, region);
+            if (conflicts.isEmpty())
+                player.message(GREEN + "Claimed " + YELLOW + region.getArea() + GREEN + " blocks for " + YELLOW + town.getName() + GREEN + "!");
+            else player.message(RED + "That claim overlaps " + String.join(", ", conflicts) + ".");
+        }
+    }
+
+    @SubCommand(of = "town", name = "top")
+    @NetworkSafe
+    public void handleTop(TownyPlayer player,
+                          @Required(fail = "Please supply a valid metric: wealth, members or claim.") TownMetric metric,
+                          Integer page) {
+        final int pages = Math.max(1, (statistics.size() + TOP_PAGE_SIZE - 1) / TOP_PAGE_SIZE);
+        final int shown = page == null ? 1 : Math.max(1, Math.min(page, pages));
+
+        player.message(YELLOW + "----- [ Top towns by " + GREEN + metric.getDisplayName() + YELLOW
+                + " (" + shown + "/" + pages + ") ] -----");
+        final List<Leaderboard.Entry<String>> entries = statistics.top(metric, (shown - 1) * TOP_PAGE_SIZE, TOP_PAGE_SIZE);
+        if (entries.isEmpty()) player.message(RED + "There are no towns yet.");
+        else entries.forEach(entry -> player.message(GOLD + "#" + entry.getRank() + " " + RED + entry.getKey()
+                + YELLOW + " - " + metric.format(entry.getScore())));
+
+        final String town = townManager.getTownNameOf(player.getUuid());
+        if (town != null) player.message(YELLOW + "Your town is " + GOLD + "#" + statistics.rankOf(metric, town));
+    }
+
     @SubCommand(of = "town", name = "warp")
     public void handleWarp(TownyPlayer player,
                            @Regex(exp = "^(\\w{1,16})$", fail = "Please supply a valid warp name, 1-16 characters.") String warpName) {
@@ -37,7 +37,7 @@ public class JoinLeaveListener implements Listener {
 
     @EventHandler
     public void onLogin(AsyncPlayerPreLoginEvent e) {
-        joining.put(e.getUniqueId(), playerManager.createOfflineTownyPlayer(e.getUniqueId()));
+        joining.put(e.getUniqueId(), playerManager.getOfflinePlayer(e.getUniqueId()));
     }
 
     @EventHandler
@@ -0,0 +1,210 @@
+package net.wesjd.towny.ngin.listeners;
+
+import com.google.inject.Inject;
+import net.wesjd.towny.ngin.metrics.LatencyHistogram;
+import net.wesjd.towny.ngin.metrics.Metrics;
+import net.wesjd.towny.ngin.player.PlayerManager;
+import net.wesjd.towny.ngin.player.Rank;
+import net.wesjd.towny.ngin.player.TownyPlayer;
+import net.wesjd.towny.ngin.town.Town;
+import net.wesjd.towny.ngin.town.TownManager;
+import net.wesjd.towny.ngin.town.TownPermissions;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.permissions.Permission;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Protects town regions from players without the right town permissions,
+ * and tells players when they walk into or out of a town
+ */
+public class ProtectionListener implements Listener {
+
+    /**
+     * The injected {@link TownManager}
+     */
+    private final TownManager townManager;
+    /**
+     * The injected {@link PlayerManager}
+     */
+    private final PlayerManager playerManager;
+
+    /**
+     * The time spent handling each event
+     */
+    private final LatencyHistogram placeTimer, breakTimer, interactTimer, moveTimer;
+
+    /**
+     * The last position and town of each online player
+     */
+    private final Map<UUID, Position> positions = new HashMap<>();
+
+    @Inject
+    public ProtectionListener(TownManager townManager, PlayerManager playerManager, Metrics metrics) {
+        this.townManager = townManager;
+        this.playerManager = playerManager;
+        placeTimer = metrics.timer("protection.place");
+        breakTimer = metrics.timer("protection.break");
+        interactTimer = metrics.timer("protection.interact");
+        moveTimer = metrics.timer("protection.move");
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onPlace(BlockPlaceEvent e) {
+        final long start = System.nanoTime();
+        if(!isAllowed(e.getPlayer(), e.getBlock(), TownPermissions.TOWN_BUILD, true)) e.setCancelled(true);
+        placeTimer.recordSince(start);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onBreak(BlockBreakEvent e) {
+        final long start = System.nanoTime();
+        if(!isAllowed(e.getPlayer(), e.getBlock(), TownPermissions.TOWN_DESTROY, true)) e.setCancelled(true);
+        breakTimer.recordSince(start);
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onInteract(PlayerInteractEvent e) {
+        if(e.getAction() != Action.RIGHT_CLICK_BLOCK && e.getAction() != Action.PHYSICAL) return;
+
+        final long start = System.nanoTime();
+        if(e.hasBlock() && !isAllowed(e.getPlayer(), e.getClickedBlock(), TownPermissions.TOWN_INTERACT,
+                e.getAction() != Action.PHYSICAL)) e.setCancelled(true);
+        interactTimer.recordSince(start);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onMove(PlayerMoveEvent e) {
+        track(e.getPlayer(), e.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onTeleport(PlayerTeleportEvent e) {
+        track(e.getPlayer(), e.getTo());
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent e) {
+        positions.remove(e.getPlayer().getUniqueId());
+    }
+
+    /**
+     * Checks whether a player may change a block
+     *
+     * @param bukkitPlayer The player
+     * @param block The block being changed
+     * @param permission The town permission needed
+     * @param notify Whether to tell them when they aren't allowed, false for events fired every tick
+     *               such as standing on a pressure plate
+     * @return Whether they're allowed
+     */
+    private boolean isAllowed(Player bukkitPlayer, Block block, Permission permission, boolean notify) {
+        final Town town = townManager.townAt(block.getWorld(), block.getX(), block.getY(), block.getZ());
+        if(town == null || town.hasPermission(bukkitPlayer.getUniqueId(), permission)) return true;
+
+        final TownyPlayer player = playerManager.getPlayer(bukkitPlayer);
+        if(player == null) return false;
+        if(player.hasRank(Rank.ADMIN) || player.hasPermission(permission.getName())) return true;
+
+        if(notify) player.message(ChatColor.RED + "You don't have permission to " + permission.getDescription() + " of " + town.getName() + ".");
+        return false;
+    }
+
+    /**
+     * Updates a player's cached position, notifying them if they crossed into or out of a town.
+     * Moving within the same block, or within a chunk nobody has claimed, doesn't touch the index
+     * unless a region changed since.
+     *
+     * @param bukkitPlayer The player
+     * @param to Where they moved to
+     */
+    private void track(Player bukkitPlayer, Location to) {
+        final long start = System.nanoTime();
+
+        final Position position = positions.computeIfAbsent(bukkitPlayer.getUniqueId(), uuid -> new Position());
+        final World world = to.getWorld();
+        final int x = to.getBlockX(), y = to.getBlockY(), z = to.getBlockZ();
+        final int version = townManager.getRegionVersion();
+        if(position.version == version && position.world == world && position.x == x && position.y == y && position.z == z) {
+            moveTimer.recordSince(start);
+            return;
+        }
+
+        final int chunkX = x >> 4, chunkZ = z >> 4;
+        final boolean sameChunk = position.version == version && position.world == world
+                && position.chunkX == chunkX && position.chunkZ == chunkZ;
+        position.version = version;
+        position.world = world;
+        position.x = x;
+        position.y = y;
+        position.z = z;
+
+        if(!sameChunk) {
+            position.chunkX = chunkX;
+            position.chunkZ = chunkZ;
+            position.wilderness = !townManager.isChunkClaimed(world, chunkX, chunkZ);
+        }
+
+        final Town town = position.wilderness ? null : townManager.townAt(world, x, y, z);
+        if(!Objects.equals(town, position.town)) {
+            final TownyPlayer player = playerManager.getPlayer(bukkitPlayer);
+            if(player != null) {
+                if(town == null) player.sendActionBar(ChatColor.GRAY + "Leaving " + position.town.getName());
+                else player.sendActionBar(ChatColor.GREEN + "Entering " + town.getName());
+            }
+            position.town = town;
+        }
+
+        moveTimer.recordSince(start);
+    }
+
+    /**
+     * The last known position of a player
+     */
+    private static class Position {
+
+        /**
+         * The world they were in
+         */
+        private World world;
+        /**
+         * The block they were in
+         */
+        private int x, y, z;
+        /**
+         * The chunk they were in
+         */
+        private int chunkX, chunkZ;
+        /**
+         * Whether no town has claimed any of their chunk
+         */
+        private boolean wilderness;
+        /**
+         * The town they were in, null if none
+         */
+        private Town town;
+        /**
+         * The region version of the town manager when this was cached
+         */
+        private int version = -1;
+
+    }
+
+}
@@ -0,0 +1,150 @@
+package net.wesjd.towny.ngin.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in nanoseconds, in the style of an HDR histogram.
+ * Each power of two is split into eight linear sub-buckets, so percentiles are accurate to within an eighth.
+ * Recording is a couple of atomic increments, so it's cheap enough for hot event handlers.
+ */
+public class LatencyHistogram {
+
+    /**
+     * The bits of precision kept below the highest bit of a sample
+     */
+    private static final int SUB_BITS = 3;
+    /**
+     * The sub-buckets per power of two
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    /**
+     * Enough buckets for any non-negative long
+     */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * The amount of samples in each bucket, see {@link #bucketOf(long)}
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    /**
+     * The amount of samples recorded
+     */
+    private final AtomicLong count = new AtomicLong();
+    /**
+     * The sum of every sample
+     */
+    private final AtomicLong total = new AtomicLong();
+    /**
+     * The largest sample recorded
+     */
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a sample
+     *
+     * @param nanos The latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if(nanos < 0) nanos = 0;
+        buckets.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        total.addAndGet(nanos);
+
+        long current;
+        while(nanos > (current = max.get()) && !max.compareAndSet(current, nanos));
+    }
+
+    /**
+     * Records the time since a start timestamp
+     *
+     * @param start The start, from {@link System#nanoTime()}
+     */
+    public void recordSince(long start) {
+        record(System.nanoTime() - start);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Gets the mean latency
+     *
+     * @return The mean in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMean() {
+        final long samples = count.get();
+        return samples == 0 ? 0 : total.get() / (double) samples;
+    }
+
+    /**
+     * Estimates a percentile, accurate to within an eighth
+     *
+     * @param percentile The percentile, between 0 and 100
+     * @return The upper bound of the bucket holding the percentile in nanoseconds, at most the max
+     */
+    public long getPercentile(double percentile) {
+        final long samples = count.get();
+        if(samples == 0) return 0;
+
+        final long target = (long) Math.ceil(samples * percentile / 100);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if(seen >= target) return Math.min(upperBoundOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Finds the bucket of a sample.
+     * Samples below {@link #SUB_BUCKETS} get a bucket each, larger ones are bucketed by their highest bit
+     * and the {@link #SUB_BITS} bits below it.
+     *
+     * @param nanos The sample, not negative
+     * @return The bucket's index
+     */
+    static int bucketOf(long nanos) {
+        if(nanos < SUB_BUCKETS) return (int) nanos;
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        final int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Gets the largest sample a bucket holds
+     *
+     * @param bucket The bucket's index
+     * @return The upper bound in nanoseconds
+     */
+    static long upperBoundOf(int bucket) {
+        if(bucket < SUB_BUCKETS) return bucket;
+
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    /**
+     * Clears every sample
+     */
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus", getCount(), getMean() / 1000,
+                getPercentile(50) / 1000D, getPercentile(99) / 1000D, getMax() / 1000D);
+    }
+
+}
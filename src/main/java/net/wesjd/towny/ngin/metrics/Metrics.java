@@ -0,0 +1,69 @@
+package net.wesjd.towny.ngin.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Holds a {@link LatencyHistogram} per named timer, such as an event handler, and a count per named counter
+ */
+public class Metrics {
+
+    /**
+     * Every timer by its name
+     */
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    /**
+     * Every counter by its name
+     */
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Gets a timer, creating it if it doesn't exist. Callers on hot paths should hold on to the result.
+     *
+     * @param name The name of the timer
+     * @return The timer's histogram
+     */
+    public LatencyHistogram timer(String name) {
+        return timers.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    /**
+     * Gets a counter, creating it if it doesn't exist. Callers on hot paths should hold on to the result.
+     *
+     * @param name The name of the counter
+     * @return The counter
+     */
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+    /**
+     * Gets every counter, sorted by name
+     *
+     * @return An unmodifiable view of the counters
+     */
+    public Map<String, LongAdder> getCounters() {
+        return Collections.unmodifiableMap(new TreeMap<>(counters));
+    }
+
+    /**
+     * Gets every timer, sorted by name
+     *
+     * @return An unmodifiable view of the timers
+     */
+    public Map<String, LatencyHistogram> getTimers() {
+        return Collections.unmodifiableMap(new TreeMap<>(timers));
+    }
+
+    /**
+     * Clears the samples of every timer and zeroes every counter
+     */
+    public void reset() {
+        timers.values().forEach(LatencyHistogram::reset);
+        counters.values().forEach(LongAdder::reset);
+    }
+
+}
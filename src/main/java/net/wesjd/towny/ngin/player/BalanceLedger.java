@@ -0,0 +1,382 @@
+package net.wesjd.towny.ngin.player;
+
+import com.google.inject.Inject;
+import net.wesjd.towny.ngin.Towny;
+import net.wesjd.towny.ngin.util.Leaderboard;
+import net.wesjd.towny.ngin.util.Money;
+import net.wesjd.towny.ngin.util.PrefixIndex;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The in-memory record of every player's balance, in minor units.
+ * Balances are updated with a compare-and-set per account, so it can be used from any thread,
+ * and the whole ledger is kept in a compact snapshot so offline balances never need a player file load.
+ * Every account is also ranked by balance, so the richest players can be listed without touching any files.
+ */
+public class BalanceLedger {
+
+    /**
+     * The version of the snapshot format
+     */
+    private static final int SNAPSHOT_VERSION = 2;
+    /**
+     * The version of the snapshot format that stored balances as doubles
+     */
+    private static final int LEGACY_DOUBLE_VERSION = 1;
+
+    /**
+     * Returned by {@link #withdraw(UUID, long)} when the withdrawal couldn't be made
+     */
+    public static final long INSUFFICIENT_FUNDS = Long.MIN_VALUE;
+
+    /**
+     * The file the snapshot is stored in
+     */
+    private final File snapshotFile;
+
+    /**
+     * {@link UUID} to account store
+     */
+    private final Map<UUID, Account> accounts = new ConcurrentHashMap<>();
+    /**
+     * Lowercase last known name to {@link UUID}, used to resolve name based vault calls
+     */
+    private final Map<String, UUID> names = new ConcurrentHashMap<>();
+    /**
+     * The names in {@link #names}, searchable by prefix
+     */
+    private final PrefixIndex<UUID> nameIndex = new PrefixIndex<>();
+    /**
+     * Every account ranked by balance, built from the snapshot on load
+     */
+    private final Leaderboard<UUID> leaderboard = new Leaderboard<>();
+    /**
+     * Accounts whose balance changed since the leaderboard was last updated.
+     * Balance changes only add to this set, so they stay lock-free.
+     */
+    private final Set<UUID> pendingRanks = ConcurrentHashMap.newKeySet();
+    /**
+     * Whether the ledger changed since the last snapshot
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    @Inject
+    public BalanceLedger(Towny towny) {
+        this(new File(towny.getDataFolder(), "balances.dat"));
+    }
+
+    /**
+     * Creates a ledger stored in a specific file
+     *
+     * @param snapshotFile The file the snapshot is stored in
+     */
+    BalanceLedger(File snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Whether the player has an account
+     *
+     * @param uuid The player's uuid
+     * @return Whether the account exists
+     */
+    public boolean hasAccount(UUID uuid) {
+        return accounts.containsKey(uuid);
+    }
+
+    /**
+     * Opens an account if the player doesn't already have one
+     *
+     * @param uuid The player's uuid
+     * @param balance The starting balance
+     * @param name The player's last known name, or null if unknown
+     * @return Whether a new account was opened
+     */
+    public boolean open(UUID uuid, long balance, String name) {
+        final Account account = new Account(balance);
+        final boolean opened = accounts.putIfAbsent(uuid, account) == null;
+        if(opened) {
+            dirty.set(true);
+            pendingRanks.add(uuid);
+        }
+        if(name != null) setName(uuid, name);
+        return opened;
+    }
+
+    /**
+     * Gets a player's balance
+     *
+     * @param uuid The player's uuid
+     * @return The balance, 0 if they have no account
+     */
+    public long getBalance(UUID uuid) {
+        final Account account = accounts.get(uuid);
+        return account == null ? 0 : account.balance.get();
+    }
+
+    /**
+     * Sets a player's balance, opening an account if needed
+     *
+     * @param uuid The player's uuid
+     * @param balance The new balance
+     */
+    public void setBalance(UUID uuid, long balance) {
+        account(uuid).balance.set(balance);
+        dirty.set(true);
+        pendingRanks.add(uuid);
+    }
+
+    /**
+     * Adds to a player's balance, opening an account if needed
+     *
+     * @param uuid The player's uuid
+     * @param amount The amount to add, negative to take away
+     * @return The new balance
+     * @throws ArithmeticException If the balance would overflow, in which case it's left unchanged
+     */
+    public long deposit(UUID uuid, long amount) {
+        final AtomicLong balance = account(uuid).balance;
+        long current, updated;
+        do {
+            current = balance.get();
+            updated = Math.addExact(current, amount);
+        } while(!balance.compareAndSet(current, updated));
+        dirty.set(true);
+        pendingRanks.add(uuid);
+        return updated;
+    }
+
+    /**
+     * Takes from a player's balance if they can afford it
+     *
+     * @param uuid The player's uuid
+     * @param amount The amount to take
+     * @return The new balance, or {@link #INSUFFICIENT_FUNDS} if the player has no account or can't afford it
+     */
+    public long withdraw(UUID uuid, long amount) {
+        final Account account = accounts.get(uuid);
+        if(account == null) return INSUFFICIENT_FUNDS;
+
+        long current, updated;
+        do {
+            current = account.balance.get();
+            updated = current - amount;
+            if(updated < 0) return INSUFFICIENT_FUNDS;
+        } while(!account.balance.compareAndSet(current, updated));
+        dirty.set(true);
+        pendingRanks.add(uuid);
+        return updated;
+    }
+
+    /**
+     * Updates the name a player is known by
+     *
+     * @param uuid The player's uuid
+     * @param name The player's name
+     */
+    public void setName(UUID uuid, String name) {
+        final Account account = account(uuid);
+        final String previous = account.name;
+        if(name.equals(previous)) return;
+
+        if(previous != null && names.remove(previous.toLowerCase(), uuid)) nameIndex.remove(previous);
+        account.name = name;
+        names.put(name.toLowerCase(), uuid);
+        nameIndex.put(name, uuid);
+        dirty.set(true);
+    }
+
+    /**
+     * Gets the name a player was last known by
+     *
+     * @param uuid The player's uuid
+     * @return The name, or null if it's unknown
+     */
+    public String getName(UUID uuid) {
+        final Account account = accounts.get(uuid);
+        return account == null ? null : account.name;
+    }
+
+    /**
+     * Resolves a player's uuid from the name they were last known by
+     *
+     * @param name The player's name
+     * @return The player's uuid, or null if no account is known by that name
+     */
+    public UUID lookupName(String name) {
+        return names.get(name.toLowerCase());
+    }
+
+    /**
+     * Completes a partial name from every name a player is known by
+     *
+     * @param prefix The start of the name, ignoring case
+     * @param limit The most names to return
+     * @return The matching names in alphabetical order
+     */
+    public List<String> completeName(String prefix, int limit) {
+        return nameIndex.complete(prefix, limit);
+    }
+
+    /**
+     * Gets a page of the accounts ranked by balance, richest first
+     *
+     * @param offset How many accounts to skip from the top
+     * @param limit The most accounts to return
+     * @return The ranked uuids
+     */
+    public List<Leaderboard.Entry<UUID>> top(int offset, int limit) {
+        return leaderboard().top(offset, limit);
+    }
+
+    /**
+     * Gets a player's position by balance
+     *
+     * @param uuid The player's uuid
+     * @return The position starting at 1, or 0 if they have no account
+     */
+    public int rankOf(UUID uuid) {
+        return leaderboard().rankOf(uuid);
+    }
+
+    /**
+     * Gets the amount of accounts
+     *
+     * @return The amount of accounts
+     */
+    public int size() {
+        return accounts.size();
+    }
+
+    /**
+     * Gets the leaderboard, applying any queued balance changes first.
+     * Each account is dequeued before its balance is read, so a change made meanwhile queues it again.
+     *
+     * @return The up to date leaderboard
+     */
+    private Leaderboard<UUID> leaderboard() {
+        if(!pendingRanks.isEmpty()) {
+            for(UUID uuid : pendingRanks) {
+                if(pendingRanks.remove(uuid)) leaderboard.update(uuid, getBalance(uuid));
+            }
+        }
+        return leaderboard;
+    }
+
+    /**
+     * Loads the ledger from its snapshot
+     *
+     * @return Whether a snapshot existed
+     */
+    public boolean load() {
+        if(!snapshotFile.exists()) return false;
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            final int version = in.readInt();
+            if(version != SNAPSHOT_VERSION && version != LEGACY_DOUBLE_VERSION)
+                throw new IOException("Unknown balance snapshot version " + version);
+
+            final int size = in.readInt();
+            for(int i = 0; i < size; i++) {
+                final UUID uuid = new UUID(in.readLong(), in.readLong());
+                final long balance = version == LEGACY_DOUBLE_VERSION ? Money.fromDouble(in.readDouble()) : in.readLong();
+                final String name = in.readBoolean() ? in.readUTF() : null;
+
+                accounts.put(uuid, new Account(balance));
+                leaderboard.update(uuid, balance);
+                if(name != null) setName(uuid, name);
+            }
+            dirty.set(version != SNAPSHOT_VERSION);
+            return true;
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to load the balance snapshot", ex);
+        }
+    }
+
+    /**
+     * Writes the snapshot if anything changed since the last write, safe to call asynchronously
+     */
+    public void flush() {
+        if(dirty.compareAndSet(true, false)) save();
+    }
+
+    /**
+     * Writes the whole ledger to its snapshot
+     */
+    public synchronized void save() {
+        final File temporary = new File(snapshotFile.getPath() + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+
+            final Map<UUID, Account> copy = new HashMap<>(accounts);
+            out.writeInt(copy.size());
+            for(Map.Entry<UUID, Account> entry : copy.entrySet()) {
+                final UUID uuid = entry.getKey();
+                final Account account = entry.getValue();
+                out.writeLong(uuid.getMostSignificantBits());
+                out.writeLong(uuid.getLeastSignificantBits());
+                out.writeLong(account.balance.get());
+
+                final String name = account.name;
+                out.writeBoolean(name != null);
+                if(name != null) out.writeUTF(name);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to save the balance snapshot", ex);
+        }
+
+        if(snapshotFile.exists() && !snapshotFile.delete())
+            throw new RuntimeException("Unable to replace the balance snapshot");
+        if(!temporary.renameTo(snapshotFile))
+            throw new RuntimeException("Unable to replace the balance snapshot");
+    }
+
+    /**
+     * Gets a player's account, opening an empty one if needed
+     *
+     * @param uuid The player's uuid
+     * @return The account
+     */
+    private Account account(UUID uuid) {
+        return accounts.computeIfAbsent(uuid, key -> {
+            dirty.set(true);
+            pendingRanks.add(key);
+            return new Account(0);
+        });
+    }
+
+    /**
+     * A single player's account
+     */
+    private static class Account {
+
+        /**
+         * The balance in minor units
+         */
+        private final AtomicLong balance;
+        /**
+         * The name the player was last known by
+         */
+        private volatile String name;
+
+        /**
+         * Creates an account
+         *
+         * @param balance The starting balance
+         */
+        Account(long balance) {
+            this.balance = new AtomicLong(balance);
+        }
+
+    }
+
+}
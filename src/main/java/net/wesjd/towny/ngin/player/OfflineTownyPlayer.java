@@ -4,12 +4,15 @@ import net.wesjd.towny.ngin.storage.Data;
 import net.wesjd.towny.ngin.storage.StorageFolder;
 import net.wesjd.towny.ngin.town.Town;
 import net.wesjd.towny.ngin.town.TownManager;
+import net.wesjd.towny.ngin.util.Money;
 import org.bukkit.entity.Player;
 
 import java.util.UUID;
 
 /**
- * Represents and offline towny player
+ * Represents and offline towny player.
+ * When a player logs in or out their data is handed over to a new instance, and the old one forwards
+ * every read, write and save to it, so callers still holding the old instance never overwrite newer data.
  */
 public class OfflineTownyPlayer {
 
@@ -17,21 +20,31 @@ public class OfflineTownyPlayer {
      * The storage folder for players
      */
     private final StorageFolder storage;
+    /**
+     * The ledger holding the player's live balance
+     */
+    private final BalanceLedger ledger;
 
     /**
      * The player's uuid
      */
     private final UUID uuid;
     /**
-     * The player's town object, cached to save on lookup time
+     * The town manager, which knows which town the player is a member of
      */
-    private Town town;
+    private final TownManager townManager;
 
     /**
-     * The amount of money the player has
+     * The amount of money in minor units the player had when last saved, the live balance is kept in the {@link BalanceLedger}
      */
     @Data
-    private double money = 0;
+    private long balance = 0;
+    /**
+     * The floating point balance of older saves, only read to migrate it into {@link #balance}
+     */
+    @Data
+    @Deprecated
+    private Double money;
     /**
      * The player's {@link Rank}
      */
@@ -45,25 +58,30 @@ public class OfflineTownyPlayer {
     private String lastKnownName;
 
     /**
-     * The current town this player is apart of, only used in to save
+     * The current town this player is apart of, only used in to save, {@link TownManager} is the source of truth
      */
     @Data
     private String townName;
 
+    /**
+     * The instance this player's data was handed over to, null while this one is canonical
+     */
+    private volatile OfflineTownyPlayer successor;
+
     /**
      * Fills this offline player with a previous one (used in {@link TownyPlayer#TownyPlayer(Player, StorageFolder, OfflineTownyPlayer)})
      *
      * @param fill The offline player to fill from
      */
     protected OfflineTownyPlayer(StorageFolder storage, OfflineTownyPlayer fill) {
+        fill = fill.canonical();
         this.storage = storage;
+        ledger = fill.ledger;
+        townManager = fill.townManager;
         uuid = fill.getUuid();
-        town = fill.getTown();
-        money = fill.getMoney();
         rank = fill.getRank();
         lastKnownName = fill.getLastKnownName();
         townName = fill.townName;
-        town = fill.getTown();
     }
 
     /**
@@ -71,66 +89,113 @@ public class OfflineTownyPlayer {
      *
      * @param uuid The {@link UUID} to load data about
      */
-    OfflineTownyPlayer(StorageFolder storage, TownManager townManager, UUID uuid) {
+    OfflineTownyPlayer(StorageFolder storage, TownManager townManager, BalanceLedger ledger, UUID uuid) {
         this.storage = storage;
+        this.townManager = townManager;
+        this.ledger = ledger;
         this.uuid = uuid;
         this.storage.unbox(uuid.toString(), this);
-        town = townManager.getTown(townName);
+        if(money != null) {
+            balance = Money.fromDouble(money);
+            money = null;
+        }
+        ledger.open(uuid, balance, lastKnownName);
+    }
+
+    /**
+     * Hands this player's data over to the instance that replaces it, after which this one forwards to it.
+     * Holds this instance's lock so no write can land between copying the data and the handover.
+     *
+     * @param successor The instance replacing this one, already filled from it
+     */
+    synchronized void handOver(OfflineTownyPlayer successor) {
+        this.successor = successor;
+    }
+
+    /**
+     * Gets the canonical instance holding this player's data, following any handovers
+     *
+     * @return This instance, or the one its data was last handed over to
+     */
+    OfflineTownyPlayer canonical() {
+        OfflineTownyPlayer current = this;
+        while(current.successor != null) current = current.successor;
+        return current;
     }
 
     public UUID getUuid() {
         return uuid;
     }
 
-    public double getMoney() {
-        return money;
+    public long getMoney() {
+        return ledger.getBalance(uuid);
     }
 
-    public void removeMoney(double amount) {
-        setMoney(getMoney() - amount);
+    public void removeMoney(long amount) {
+        ledger.deposit(uuid, -amount);
     }
 
-    public void addMoney(double amount) {
-        setMoney(getMoney() + amount);
+    public void addMoney(long amount) {
+        ledger.deposit(uuid, amount);
     }
 
-    public void setMoney(double money) {
-        this.money = money;
+    public void setMoney(long money) {
+        ledger.setBalance(uuid, money);
     }
 
     public Rank getRank() {
+        if(successor != null) return canonical().getRank();
         return rank;
     }
 
     public boolean hasRank(Rank rank) {
-        return (this.rank.compareTo(rank) >= 0);
+        return (getRank().compareTo(rank) >= 0);
+    }
+
+    /**
+     * Whether the player's global rank grants a node, directly or through a wildcard
+     *
+     * @param node The node to check
+     * @return Whether the node is granted
+     */
+    public boolean hasPermission(String node) {
+        return getRank().hasPermission(node);
     }
 
-    public void setRank(Rank rank) {
-        this.rank = rank;
+    public synchronized void setRank(Rank rank) {
+        if(successor != null) canonical().setRank(rank);
+        else this.rank = rank;
     }
 
     public String getLastKnownName() {
+        if(successor != null) return canonical().getLastKnownName();
         return lastKnownName;
     }
 
-    public void setLastKnownName(String lastName) {
+    public synchronized void setLastKnownName(String lastName) {
+        if(successor != null) {
+            canonical().setLastKnownName(lastName);
+            return;
+        }
         lastKnownName = lastName;
+        ledger.setName(uuid, lastName);
     }
 
     public Town getTown() {
-        return town;
-    }
-
-    public void setTown(Town town) {
-        this.town = town;
-        townName = town.getName();
+        return townManager.getTownOf(uuid);
     }
 
     /**
      * Save the player's data to the file
      */
-    public void save() {
+    public synchronized void save() {
+        if(successor != null) {
+            canonical().save();
+            return;
+        }
+        balance = getMoney();
+        final Town town = getTown();
+        townName = town == null ? null : town.getName();
         storage.packup(uuid.toString(), this);
     }
 
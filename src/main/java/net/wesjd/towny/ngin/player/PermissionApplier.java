@@ -0,0 +1,106 @@
+package net.wesjd.towny.ngin.player;
+
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionAttachment;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Applies permission nodes to an attachment in a single batch
+ */
+public class PermissionApplier {
+
+    /**
+     * The attachment's backing node map, written to directly so bukkit only recalculates once per batch.
+     * Null if this server's attachment doesn't have one, in which case nodes are set through the api.
+     */
+    private static final Field PERMISSIONS_FIELD = findPermissionsField();
+
+    /**
+     * Makes the attachment grant exactly the provided nodes,
+     * only touching the nodes that differ and recalculating at most once
+     *
+     * @param attachment The attachment to apply the nodes to
+     * @param nodes The nodes the attachment should grant
+     * @return Whether the attachment changed
+     */
+    public static boolean apply(PermissionAttachment attachment, Collection<Permission> nodes) {
+        final Set<String> wanted = new HashSet<>(nodes.size());
+        for(Permission node : nodes) wanted.add(node.getName().toLowerCase());
+
+        final Map<String, Boolean> applied = getPermissions(attachment);
+        if(applied == null) return applyThroughApi(attachment, wanted);
+
+        boolean changed = applied.keySet().retainAll(wanted);
+        for(String node : wanted) {
+            if(applied.put(node, true) != Boolean.TRUE) changed = true;
+        }
+
+        if(changed) attachment.getPermissible().recalculatePermissions();
+        return changed;
+    }
+
+    /**
+     * Applies the nodes through the attachment's api when its node map can't be reached.
+     * Bukkit recalculates after every node set this way, so only the nodes that differ are touched.
+     *
+     * @param attachment The attachment to apply the nodes to
+     * @param wanted The lowercase nodes the attachment should grant
+     * @return Whether the attachment changed
+     */
+    private static boolean applyThroughApi(PermissionAttachment attachment, Set<String> wanted) {
+        final Map<String, Boolean> applied = attachment.getPermissions();
+
+        boolean changed = false;
+        for(String node : applied.keySet()) {
+            if(!wanted.contains(node)) {
+                attachment.unsetPermission(node);
+                changed = true;
+            }
+        }
+        for(String node : wanted) {
+            if(applied.get(node) != Boolean.TRUE) {
+                attachment.setPermission(node, true);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Gets the live node map of an attachment
+     *
+     * @param attachment The attachment
+     * @return The attachment's backing map, or null if it can't be reached
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Boolean> getPermissions(PermissionAttachment attachment) {
+        if(PERMISSIONS_FIELD == null) return null;
+        try {
+            return (Map<String, Boolean>) PERMISSIONS_FIELD.get(attachment);
+        } catch (IllegalAccessException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves the attachment's backing node map once
+     *
+     * @return The field, or null if there is no accessible map field
+     */
+    private static Field findPermissionsField() {
+        try {
+            final Field field = PermissionAttachment.class.getDeclaredField("permissions");
+            if(!Map.class.isAssignableFrom(field.getType())) return null;
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException | SecurityException ex) {
+            return null;
+        }
+    }
+
+}
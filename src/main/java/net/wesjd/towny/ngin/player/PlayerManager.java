@@ -1,8 +1,10 @@
 package net.wesjd.towny.ngin.player;
 
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import net.wesjd.towny.ngin.storage.StorageFolder;
@@ -11,7 +13,9 @@ import net.wesjd.towny.ngin.util.UUIDFetcher;
 import org.apache.commons.lang.Validate;
 import org.bukkit.entity.Player;
 
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -30,11 +34,41 @@ public class PlayerManager {
      */
     @Inject
     private TownManager townManager;
+    /**
+     * The injected {@link BalanceLedger}
+     */
+    @Inject
+    private BalanceLedger ledger;
 
     /**
      * {@link UUID} to {@link TownyPlayer} store
      */
-    private final Map<UUID, TownyPlayer> store = new HashMap<>();
+    private final Map<UUID, TownyPlayer> store = new ConcurrentHashMap<>();
+
+    /**
+     * Offline players evicted from {@link #offlineCache} that someone may still hold.
+     * They're only weakly held, and taken back if the player is looked up again before they're collected.
+     */
+    private final Cache<UUID, OfflineTownyPlayer> evicted = CacheBuilder.newBuilder()
+            .weakValues()
+            .build();
+
+    /**
+     * A bounded cache of offline players, so each {@link UUID} only ever has one loaded instance
+     */
+    private final LoadingCache<UUID, OfflineTownyPlayer> offlineCache = CacheBuilder.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .maximumSize(500)
+            .removalListener((RemovalNotification<UUID, OfflineTownyPlayer> notification) -> {
+                if(notification.wasEvicted()) evicted.put(notification.getKey(), notification.getValue());
+            })
+            .build(new CacheLoader<UUID, OfflineTownyPlayer>() {
+                @Override
+                public OfflineTownyPlayer load(UUID key) throws Exception {
+                    final OfflineTownyPlayer retained = evicted.asMap().remove(key);
+                    return retained != null ? retained : new OfflineTownyPlayer(storage, townManager, ledger, key);
+                }
+            });
 
     /**
      * A simple name to uuid cache
@@ -50,39 +84,62 @@ public class PlayerManager {
             });
 
     /**
-     * Gets the uuid from a player's name
+     * Gets the uuid from a player's name, preferring names already known to the ledger over asking Mojang
      *
      * @param name The player's name to get the uuid of
-     * @return The player's {@link UUID}
+     * @return The player's {@link UUID}, or null if no player has that name
+     * @throws RuntimeException If the name couldn't be looked up
      */
     public UUID getUUIDFor(String name) {
+        final UUID known = ledger.lookupName(name);
+        if(known != null) return known;
+
         try {
             return nameCache.get(name);
+        } catch (CacheLoader.InvalidCacheLoadException ex) {
+            return null;
         } catch (ExecutionException ex) {
             throw new RuntimeException(ex);
         }
     }
 
     /**
-     * Creates a new {@link OfflineTownyPlayer}
+     * Gets the canonical {@link OfflineTownyPlayer} for a uuid.
+     * Online players are returned as their {@link TownyPlayer} wrapper,
+     * offline players are loaded from storage once and then served from the cache,
+     * or taken back from {@link #evicted} if an evicted instance is still held somewhere.
      *
-     * @param uuid The uuid to create the player from
-     * @return The created {@link OfflineTownyPlayer}
+     * @param uuid The uuid of the player
+     * @return The canonical {@link OfflineTownyPlayer}
      */
-    public OfflineTownyPlayer createOfflineTownyPlayer(UUID uuid) {
-        return new OfflineTownyPlayer(storage, townManager, uuid);
+    public OfflineTownyPlayer getOfflinePlayer(UUID uuid) {
+        final TownyPlayer online = store.get(uuid);
+        if(online != null) return online;
+        return offlineCache.getUnchecked(uuid);
     }
 
     /**
-     * Creates a wrapper for a player
+     * Creates a wrapper for a player, taking over the canonical offline instance.
+     * The offline instance forwards to the wrapper from then on, so anyone still holding it sees and saves live data.
      *
      * @param player The {@link Player} to create a wrapper for
+     * @param offline The instance loaded when the player started logging in
+     * @return The wrapper
      */
     public TownyPlayer initializePlayer(Player player, OfflineTownyPlayer offline) {
         Validate.isTrue(!store.containsKey(offline.getUuid()));
 
-        final TownyPlayer townyPlayer = new TownyPlayer(player, storage, offline);
+        OfflineTownyPlayer cached = offlineCache.getIfPresent(offline.getUuid());
+        if(cached == null) cached = evicted.asMap().remove(offline.getUuid());
+        final OfflineTownyPlayer canonical = (cached == null ? offline : cached).canonical();
+        final TownyPlayer townyPlayer;
+        synchronized(canonical) {
+            townyPlayer = new TownyPlayer(player, storage, canonical);
+            canonical.handOver(townyPlayer);
+        }
+        if(offline.canonical() != townyPlayer) offline.canonical().handOver(townyPlayer);
         store.put(offline.getUuid(), townyPlayer);
+        offlineCache.invalidate(offline.getUuid());
         return townyPlayer;
     }
 
@@ -112,7 +169,25 @@ public class PlayerManager {
      * @param player The {@link Player} to remove
      */
     public void removePlayer(Player player) {
-        store.remove(player.getUniqueId()).save();
+        final TownyPlayer removed = store.remove(player.getUniqueId());
+        final OfflineTownyPlayer offline;
+        synchronized(removed) {
+            removed.save();
+            offline = new OfflineTownyPlayer(storage, removed);
+            removed.handOver(offline);
+        }
+        offlineCache.put(removed.getUuid(), offline);
+    }
+
+    /**
+     * Completes a partial name from every player known to the server, online or not
+     *
+     * @param prefix The start of the name, ignoring case
+     * @param limit The most names to return
+     * @return The matching names in alphabetical order
+     */
+    public List<String> completeName(String prefix, int limit) {
+        return ledger.completeName(prefix, limit);
     }
 
     /**
@@ -124,6 +199,19 @@ public class PlayerManager {
         return Collections.unmodifiableCollection(store.values());
     }
 
+    /**
+     * Loads the balance ledger, seeding it from every player file if it has no snapshot yet
+     */
+    public void loadBalances() {
+        if(ledger.load()) return;
+
+        Arrays.stream(storage.getAllFiles())
+                .map(File::getName)
+                .map(UUID::fromString)
+                .forEach(uuid -> new OfflineTownyPlayer(storage, townManager, ledger, uuid));
+        ledger.save();
+    }
+
     /**
      * Saves the currently loaded players
      */
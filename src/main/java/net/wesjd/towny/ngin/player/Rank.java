@@ -2,6 +2,8 @@ package net.wesjd.towny.ngin.player;
 
 import com.google.common.io.Files;
 import net.wesjd.towny.ngin.Towny;
+import net.wesjd.towny.ngin.util.PermissionTrie;
+import net.wesjd.towny.ngin.util.Scheduling;
 import org.apache.commons.io.FileUtils;
 import org.bukkit.ChatColor;
 import org.bukkit.permissions.Permission;
@@ -9,8 +11,7 @@ import org.bukkit.permissions.Permission;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -23,6 +24,11 @@ public enum Rank {
     MOD("Mod", ChatColor.DARK_PURPLE),
     ADMIN("Admin", ChatColor.RED);
 
+    /**
+     * The most players to re-apply permissions for in a single tick
+     */
+    private static final int PLAYERS_PER_TICK = 50;
+
     /**
      * The rank's chat prefix
      */
@@ -33,9 +39,13 @@ public enum Rank {
     private final ChatColor color;
 
     /**
-     * Contains all the permissions for this rank
+     * Contains all the permissions for this rank, keyed by their lowercase node
      */
-    private final Set<Permission> permissions = new HashSet<>();
+    private final Map<String, Permission> permissions = new LinkedHashMap<>();
+    /**
+     * The compiled permissions, rebuilt whenever the permissions change
+     */
+    private volatile PermissionTrie compiled;
     /**
      * The file that contains saved permissions for this rank
      */
@@ -51,7 +61,8 @@ public enum Rank {
 
             permissionsFile = new File(permissionsFolder, toString().toLowerCase());
             if (!permissionsFile.exists()) permissionsFile.createNewFile();
-            Files.readLines(permissionsFile, StandardCharsets.UTF_8).forEach(line -> permissions.add(new Permission(line)));
+            Files.readLines(permissionsFile, StandardCharsets.UTF_8).forEach(line -> permissions.put(line.toLowerCase(), new Permission(line)));
+            compiled = new PermissionTrie(permissions.values());
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
@@ -62,20 +73,35 @@ public enum Rank {
      */
     public void savePermissions() {
         try {
-            FileUtils.writeLines(permissionsFile, permissions.stream().map(Permission::getName).collect(Collectors.toList()));
+            FileUtils.writeLines(permissionsFile, permissions.values().stream().map(Permission::getName).collect(Collectors.toList()));
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
     }
 
     /**
-     * Re-apply all permissions to all players on the server for this rank
+     * Re-apply all permissions to all players on the server for this rank,
+     * spread over multiple ticks when many players have it
      */
     public void recalculatePermissions() {
-        Towny.getPlugin().getInjector().getInstance(PlayerManager.class).getOnlinePlayers()
+        final List<TownyPlayer> holders = Towny.getPlugin().getInjector().getInstance(PlayerManager.class).getOnlinePlayers()
                 .stream()
                 .filter(player -> player.getRank() == this)
-                .forEach(player -> player.setRank(this));
+                .collect(Collectors.toList());
+        applyInBatches(holders.iterator());
+    }
+
+    /**
+     * Re-applies permissions for the next batch of players, scheduling the rest for the next tick
+     *
+     * @param remaining The players still needing their permissions re-applied
+     */
+    private void applyInBatches(Iterator<TownyPlayer> remaining) {
+        for(int i = 0; i < PLAYERS_PER_TICK && remaining.hasNext(); i++) {
+            final TownyPlayer player = remaining.next();
+            if(player.getWrapped().isOnline() && player.getRank() == this) player.applyRankPermissions();
+        }
+        if(remaining.hasNext()) Scheduling.syncLater(() -> applyInBatches(remaining), 1);
     }
 
     public String getPrefix() {
@@ -86,8 +112,53 @@ public enum Rank {
         return color;
     }
 
-    public Set<Permission> getPermissions() {
-        return permissions;
+    public Collection<Permission> getPermissions() {
+        return Collections.unmodifiableCollection(permissions.values());
+    }
+
+    /**
+     * Adds a node to this rank
+     *
+     * @param node The node to add
+     * @return Whether the node was added, false if the rank already had it
+     */
+    public boolean addPermission(String node) {
+        if(hasNode(node)) return false;
+        permissions.put(node.toLowerCase(), new Permission(node));
+        compiled = new PermissionTrie(permissions.values());
+        return true;
+    }
+
+    /**
+     * Removes a node from this rank
+     *
+     * @param node The node to remove
+     * @return Whether the node was removed, false if the rank didn't have it
+     */
+    public boolean removePermission(String node) {
+        if(permissions.remove(node.toLowerCase()) == null) return false;
+        compiled = new PermissionTrie(permissions.values());
+        return true;
+    }
+
+    /**
+     * Whether this rank has exactly the supplied node
+     *
+     * @param node The node to check
+     * @return Whether the rank has the node
+     */
+    public boolean hasNode(String node) {
+        return permissions.containsKey(node.toLowerCase());
+    }
+
+    /**
+     * Whether this rank grants the supplied node, directly or through a wildcard
+     *
+     * @param node The node to check
+     * @return Whether the node is granted
+     */
+    public boolean hasPermission(String node) {
+        return compiled.contains(node);
     }
 
 }
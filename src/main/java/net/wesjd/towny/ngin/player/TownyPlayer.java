@@ -35,16 +35,33 @@ public class TownyPlayer extends OfflineTownyPlayer {
     TownyPlayer(Player wrapped, StorageFolder storage, OfflineTownyPlayer offline) {
         super(storage, offline);
         this.wrapped = wrapped;
-        attachment = new PermissionAttachment(Bukkit.getPluginManager().getPlugin("ngin"), this.wrapped);
+        attachment = this.wrapped.addAttachment(Bukkit.getPluginManager().getPlugin("ngin"));
         setLastKnownName(wrapped.getName());
-        setRank(getRank()); //to give the player their permissions
+        applyRankPermissions(); //to give the player their permissions
     }
 
     @Override
-    public void setRank(Rank rank) {
-        getRank().getPermissions().forEach(attachment::unsetPermission);
+    public synchronized void setRank(Rank rank) {
         super.setRank(rank);
-        rank.getPermissions().forEach(perm -> attachment.setPermission(perm, true));
+        if(canonical() == this) applyRankPermissions();
+    }
+
+    /**
+     * Brings the player's permissions in line with their rank's current nodes
+     */
+    public void applyRankPermissions() {
+        PermissionApplier.apply(attachment, getRank().getPermissions());
+    }
+
+    /**
+     * Whether the player has a node, through their global rank's wildcards or from Bukkit
+     *
+     * @param node The node to check
+     * @return Whether the node is granted
+     */
+    @Override
+    public boolean hasPermission(String node) {
+        return super.hasPermission(node) || wrapped.hasPermission(node);
     }
 
     /**
@@ -6,17 +6,18 @@ import com.google.common.cache.LoadingCache;
 import net.wesjd.towny.ngin.Towny;
 import net.wesjd.towny.ngin.storage.pack.Packer;
 import net.wesjd.towny.ngin.storage.pack.PackerStore;
-import org.apache.commons.io.FileUtils;
 import org.msgpack.core.MessageBufferPacker;
 import org.msgpack.core.MessagePack;
 import org.msgpack.core.MessageUnpacker;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
@@ -29,6 +30,11 @@ import java.util.stream.Collectors;
  */
 public class StorageFolder {
 
+    /**
+     * The suffix of the temporary files written before being moved over the real ones
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
     /**
      * The injected {@link Towny} instance
      */
@@ -84,6 +90,19 @@ public class StorageFolder {
      * @throws PackException Thrown when unable to write to packer or a packer doesn't exist for a field
      */
     public void packup(String name, Object packable) throws PackException {
+        write(name, pack(packable));
+    }
+
+    /**
+     * Reads variables annotated with {@link Data} into bytes,
+     * so the object can be snapshotted on the thread that changes it
+     * and written out on another.
+     *
+     * @param packable The object to pack
+     * @return The packed bytes, ready for {@link #write(String, byte[])}
+     * @throws PackException Thrown when unable to write to packer or a packer doesn't exist for a field
+     */
+    public byte[] pack(Object packable) throws PackException {
         try {
             MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
 
@@ -108,13 +127,32 @@ public class StorageFolder {
             }
 
             packer.close();
-
-            FileUtils.copyInputStreamToFile(new ByteArrayInputStream(packer.toByteArray()), new File(folder, name));
+            return packer.toByteArray();
         } catch (IOException | ExecutionException e) {
             throw new PackException("Packing " + packable.getClass(), e);
         }
     }
 
+    /**
+     * Writes packed bytes to a file, through a temporary
+     * file that is moved over it so a crash never leaves
+     * a half written file behind.
+     *
+     * @param name  Name of the file to save to
+     * @param bytes The bytes from {@link #pack(Object)}
+     * @throws PackException Thrown when unable to write the file
+     */
+    public void write(String name, byte[] bytes) throws PackException {
+        final Path file = new File(folder, name).toPath();
+        final Path temp = new File(folder, name + TEMP_SUFFIX).toPath();
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new PackException("Writing " + name, e);
+        }
+    }
+
     /**
      * Sets all the variables for a
      * specified object from a file
@@ -157,12 +195,12 @@ public class StorageFolder {
     }
 
     /**
-     * Gets all the {@link File}'s in the folder
+     * Gets all the {@link File}'s in the folder, skipping temporary files of unfinished writes
      *
-     * @return
+     * @return The files
      */
     public File[] getAllFiles() {
-        return folder.listFiles();
+        return folder.listFiles((dir, name) -> !name.endsWith(TEMP_SUFFIX));
     }
 
     /**
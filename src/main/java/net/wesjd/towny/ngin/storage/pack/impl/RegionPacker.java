@@ -1,36 +1,49 @@
 package net.wesjd.towny.ngin.storage.pack.impl;
 
-import com.google.inject.Inject;
 import net.wesjd.towny.ngin.storage.pack.Packer;
-import net.wesjd.towny.ngin.storage.pack.PackerStore;
 import net.wesjd.towny.ngin.util.Region;
-import org.bukkit.Location;
 import org.msgpack.core.MessagePacker;
 import org.msgpack.core.MessageUnpacker;
 
 import java.io.IOException;
 
+/**
+ * Packs a {@link Region} as its two corners, in the same layout {@link LocationPacker} uses
+ * so regions saved as a pair of locations still load
+ */
 public class RegionPacker extends Packer<Region> {
 
-    @Inject
-    private PackerStore packerStore;
-
     @Override
     public void packup(Region packing, MessagePacker packer) throws IOException {
-        LocationPacker locationPacker = getLocationPacker();
-
-        locationPacker.packup(packing.getPos1(), packer);
-        locationPacker.packup(packing.getPos2(), packer);
+        packCorner(packing.getWorldName(), packing.getMinX(), packing.getMinY(), packing.getMinZ(), packer);
+        packCorner(packing.getWorldName(), packing.getMaxX(), packing.getMaxY(), packing.getMaxZ(), packer);
     }
 
     @Override
     public Region unbox(MessageUnpacker unpacker) throws IOException {
-        LocationPacker locationPacker = getLocationPacker();
+        final String world = unpacker.unpackString();
+        final double x1 = unpacker.unpackDouble(), y1 = unpacker.unpackDouble(), z1 = unpacker.unpackDouble();
+        unpacker.unpackFloat(); //yaw
+        unpacker.unpackFloat(); //pitch
+
+        unpacker.unpackString(); //both corners share a world
+        final double x2 = unpacker.unpackDouble(), y2 = unpacker.unpackDouble(), z2 = unpacker.unpackDouble();
+        unpacker.unpackFloat();
+        unpacker.unpackFloat();
 
-        return new Region(locationPacker.unbox(unpacker), locationPacker.unbox(unpacker));
+        return new Region(world, x1, y1, z1, x2, y2, z2);
     }
 
-    private LocationPacker getLocationPacker() {
-        return (LocationPacker) packerStore.lookup(Location.class).orElseThrow(() -> new RuntimeException("Unable to find packer for Location"));
+    /**
+     * Packs a corner like a {@link org.bukkit.Location} with no rotation
+     */
+    private void packCorner(String world, double x, double y, double z, MessagePacker packer) throws IOException {
+        packer.packString(world);
+        packer.packDouble(x);
+        packer.packDouble(y);
+        packer.packDouble(z);
+
+        packer.packFloat(0);
+        packer.packFloat(0);
     }
 }
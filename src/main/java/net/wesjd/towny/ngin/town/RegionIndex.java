@@ -0,0 +1,326 @@
+package net.wesjd.towny.ngin.town;
+
+import net.wesjd.towny.ngin.util.LongObjectMap;
+import net.wesjd.towny.ngin.util.Region;
+
+import java.util.*;
+import java.util.function.LongConsumer;
+
+/**
+ * A spatial index of town regions, partitioned per world.
+ * Claims spanning few chunks are stored in every chunk they cover, larger claims in a coarse grid
+ * of 512 block cells, and the rare huge claim in a short list that is always scanned.
+ * Small claims are also kept in a coarse grid of their own, so queries over wide areas still only probe a few cells.
+ * Not thread safe, only use it from the main thread.
+ */
+class RegionIndex {
+
+    /**
+     * The shift from a block coordinate to a chunk coordinate
+     */
+    private static final int CHUNK_SHIFT = 4;
+    /**
+     * The shift from a block coordinate to a coarse cell coordinate
+     */
+    private static final int CELL_SHIFT = 9;
+    /**
+     * The most chunks a claim may cover before it's moved to the coarse grid
+     */
+    private static final int MAX_CHUNKS = 256;
+    /**
+     * The most coarse cells a claim may cover before it's kept in the huge list
+     */
+    private static final int MAX_CELLS = 64;
+
+    /**
+     * The index of each world by its name
+     */
+    private final Map<String, WorldIndex> worlds = new HashMap<>();
+    /**
+     * The indexed claim of each town by the town's name
+     */
+    private final Map<String, Claim> claims = new HashMap<>();
+
+    /**
+     * Indexes a town's region, replacing its previous one
+     *
+     * @param town The name of the town
+     * @param region The town's region, or null to only remove the old one
+     */
+    void put(String town, Region region) {
+        remove(town);
+        if(region == null) return;
+
+        final Claim claim = new Claim(town, region.getWorldName(),
+                region.getMinBlockX(), region.getMinBlockY(), region.getMinBlockZ(),
+                region.getMaxBlockX(), region.getMaxBlockY(), region.getMaxBlockZ());
+        claims.put(town, claim);
+        worlds.computeIfAbsent(claim.world, name -> new WorldIndex()).add(claim);
+    }
+
+    /**
+     * Removes a town's region from the index
+     *
+     * @param town The name of the town
+     */
+    void remove(String town) {
+        final Claim claim = claims.remove(town);
+        if(claim == null) return;
+
+        final WorldIndex index = worlds.get(claim.world);
+        index.remove(claim);
+        if(index.isEmpty()) worlds.remove(claim.world);
+    }
+
+    /**
+     * Removes every region from the index
+     */
+    void clear() {
+        claims.clear();
+        worlds.clear();
+    }
+
+    /**
+     * Finds the town owning a block
+     *
+     * @param world The name of the world
+     * @param x The block x
+     * @param y The block y
+     * @param z The block z
+     * @return The name of the town, or null if the block isn't claimed
+     */
+    String townAt(String world, int x, int y, int z) {
+        final WorldIndex index = worlds.get(world);
+        if(index == null) return null;
+
+        final Claim claim = index.claimAt(x, y, z);
+        return claim == null ? null : claim.town;
+    }
+
+    /**
+     * Finds every town whose region intersects with a box
+     *
+     * @param world The name of the world
+     * @param minX The minimum block x
+     * @param minY The minimum block y
+     * @param minZ The minimum block z
+     * @param maxX The maximum block x
+     * @param maxY The maximum block y
+     * @param maxZ The maximum block z
+     * @return The names of the towns
+     */
+    Set<String> townsIntersecting(String world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        final WorldIndex index = worlds.get(world);
+        if(index == null) return Collections.emptySet();
+
+        final Set<String> found = new LinkedHashSet<>();
+        index.collect(minX, minY, minZ, maxX, maxY, maxZ, found);
+        return found;
+    }
+
+    /**
+     * Packs two grid coordinates into one key
+     *
+     * @param x The grid x
+     * @param z The grid z
+     * @return The key
+     */
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The index of a single world
+     */
+    private static class WorldIndex {
+
+        /**
+         * The small claims covering each chunk
+         */
+        private final LongObjectMap<Claim[]> chunks = new LongObjectMap<>();
+        /**
+         * The small claims covering each coarse cell, probed by queries covering too many chunks
+         */
+        private final LongObjectMap<Claim[]> smallCells = new LongObjectMap<>();
+        /**
+         * The large claims covering each coarse cell
+         */
+        private final LongObjectMap<Claim[]> cells = new LongObjectMap<>();
+        /**
+         * The claims too big for the coarse grid
+         */
+        private final List<Claim> huge = new ArrayList<>();
+        /**
+         * Every small claim, scanned when a query covers too many chunks to probe
+         */
+        private final Set<Claim> small = new HashSet<>();
+        /**
+         * Every large claim, scanned when a query covers too many cells to probe
+         */
+        private final Set<Claim> large = new HashSet<>();
+
+        void add(Claim claim) {
+            if(claim.span(CHUNK_SHIFT) <= MAX_CHUNKS) {
+                small.add(claim);
+                claim.forEachCell(CHUNK_SHIFT, key -> chunks.put(key, append(chunks.get(key), claim)));
+                claim.forEachCell(CELL_SHIFT, key -> smallCells.put(key, append(smallCells.get(key), claim)));
+            } else if(claim.span(CELL_SHIFT) <= MAX_CELLS) {
+                large.add(claim);
+                claim.forEachCell(CELL_SHIFT, key -> cells.put(key, append(cells.get(key), claim)));
+            } else huge.add(claim);
+        }
+
+        void remove(Claim claim) {
+            if(small.remove(claim)) {
+                claim.forEachCell(CHUNK_SHIFT, key -> strip(chunks, key, claim));
+                claim.forEachCell(CELL_SHIFT, key -> strip(smallCells, key, claim));
+            } else if(large.remove(claim)) claim.forEachCell(CELL_SHIFT, key -> strip(cells, key, claim));
+            else huge.remove(claim);
+        }
+
+        boolean isEmpty() {
+            return small.isEmpty() && large.isEmpty() && huge.isEmpty();
+        }
+
+        Claim claimAt(int x, int y, int z) {
+            Claim claim = find(chunks.get(key(x >> CHUNK_SHIFT, z >> CHUNK_SHIFT)), x, y, z);
+            if(claim == null && !cells.isEmpty()) claim = find(cells.get(key(x >> CELL_SHIFT, z >> CELL_SHIFT)), x, y, z);
+            for(int i = 0; claim == null && i < huge.size(); i++) {
+                if(huge.get(i).contains(x, y, z)) claim = huge.get(i);
+            }
+            return claim;
+        }
+
+        void collect(int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Set<String> found) {
+            if(!probe(chunks, CHUNK_SHIFT, MAX_CHUNKS, minX, minY, minZ, maxX, maxY, maxZ, found)
+                    && !probe(smallCells, CELL_SHIFT, MAX_CELLS, minX, minY, minZ, maxX, maxY, maxZ, found))
+                scan(small, minX, minY, minZ, maxX, maxY, maxZ, found);
+            if(!probe(cells, CELL_SHIFT, MAX_CELLS, minX, minY, minZ, maxX, maxY, maxZ, found))
+                scan(large, minX, minY, minZ, maxX, maxY, maxZ, found);
+            scan(huge, minX, minY, minZ, maxX, maxY, maxZ, found);
+        }
+
+        /**
+         * Collects the claims of one grid by probing each covered cell, if there are few enough
+         *
+         * @return Whether the grid was probed, false if the box covers too many cells
+         */
+        private static boolean probe(LongObjectMap<Claim[]> grid, int shift, int maxProbes,
+                                     int minX, int minY, int minZ, int maxX, int maxY, int maxZ, Set<String> found) {
+            if(grid.isEmpty()) return true;
+
+            final int minCX = minX >> shift, minCZ = minZ >> shift, maxCX = maxX >> shift, maxCZ = maxZ >> shift;
+            if((long) (maxCX - minCX + 1) * (maxCZ - minCZ + 1) > maxProbes) return false;
+
+            for(int cx = minCX; cx <= maxCX; cx++) {
+                for(int cz = minCZ; cz <= maxCZ; cz++) {
+                    final Claim[] claims = grid.get(key(cx, cz));
+                    if(claims == null) continue;
+                    for(Claim claim : claims) {
+                        if(claim.intersects(minX, minY, minZ, maxX, maxY, maxZ)) found.add(claim.town);
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Collects the claims intersecting a box by checking each one
+         */
+        private static void scan(Collection<Claim> claims, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                                 Set<String> found) {
+            for(Claim claim : claims) {
+                if(claim.intersects(minX, minY, minZ, maxX, maxY, maxZ)) found.add(claim.town);
+            }
+        }
+
+        private static Claim find(Claim[] claims, int x, int y, int z) {
+            if(claims == null) return null;
+            for(Claim claim : claims) {
+                if(claim.contains(x, y, z)) return claim;
+            }
+            return null;
+        }
+
+        private static Claim[] append(Claim[] claims, Claim claim) {
+            if(claims == null) return new Claim[] { claim };
+            final Claim[] appended = Arrays.copyOf(claims, claims.length + 1);
+            appended[claims.length] = claim;
+            return appended;
+        }
+
+        private static void strip(LongObjectMap<Claim[]> grid, long key, Claim claim) {
+            final Claim[] claims = grid.get(key);
+            if(claims == null) return;
+            if(claims.length == 1) {
+                if(claims[0] == claim) grid.remove(key);
+                return;
+            }
+
+            final Claim[] stripped = Arrays.stream(claims).filter(c -> c != claim).toArray(Claim[]::new);
+            grid.put(key, stripped);
+        }
+
+    }
+
+    /**
+     * A town's region in inclusive block coordinates
+     */
+    private static class Claim {
+
+        /**
+         * The names of the town and the world it's in
+         */
+        final String town, world;
+        /**
+         * The inclusive bounds of the claim
+         */
+        final int minX, minY, minZ, maxX, maxY, maxZ;
+
+        Claim(String town, String world, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            this.town = town;
+            this.world = world;
+            this.minX = minX;
+            this.minY = minY;
+            this.minZ = minZ;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.maxZ = maxZ;
+        }
+
+        boolean contains(int x, int y, int z) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+        }
+
+        boolean intersects(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+            return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY
+                    && this.minZ <= maxZ && this.maxZ >= minZ;
+        }
+
+        /**
+         * Gets how many grid cells the claim covers
+         *
+         * @param shift The shift from a block to a grid coordinate
+         * @return The amount of cells
+         */
+        long span(int shift) {
+            return (long) ((maxX >> shift) - (minX >> shift) + 1) * ((maxZ >> shift) - (minZ >> shift) + 1);
+        }
+
+        /**
+         * Runs an action with the key of every grid cell the claim covers
+         *
+         * @param shift The shift from a block to a grid coordinate
+         * @param action The action to run
+         */
+        void forEachCell(int shift, LongConsumer action) {
+            for(int cx = minX >> shift; cx <= maxX >> shift; cx++) {
+                for(int cz = minZ >> shift; cz <= maxZ >> shift; cz++) {
+                    action.accept(key(cx, cz));
+                }
+            }
+        }
+
+    }
+
+}
@@ -1,14 +1,21 @@
 package net.wesjd.towny.ngin.town;
 
+import net.wesjd.towny.ngin.player.BalanceLedger;
 import net.wesjd.towny.ngin.player.TownyPlayer;
 import net.wesjd.towny.ngin.storage.Data;
 import net.wesjd.towny.ngin.storage.StorageFolder;
 import net.wesjd.towny.ngin.town.ranks.DefaultRank;
 import net.wesjd.towny.ngin.town.ranks.OwnerRank;
+import net.wesjd.towny.ngin.util.Money;
+import net.wesjd.towny.ngin.util.PrefixIndex;
 import net.wesjd.towny.ngin.util.Region;
 import org.bukkit.Location;
+import org.bukkit.permissions.Permission;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a town
@@ -19,6 +26,10 @@ public class Town {
      * An instance of the folder containing all towns
      */
     private final StorageFolder storage;
+    /**
+     * The statistics told about balance changes
+     */
+    private final TownStatistics statistics;
 
     /**
      * The spawn location for the town
@@ -33,22 +44,32 @@ public class Town {
     private Region region;
 
     /**
-     * The current balance of the town
+     * The balance of the town in minor units when last saved, the live balance is kept in {@link #liveBalance}
+     */
+    @Data
+    private long balance;
+    /**
+     * The floating point balance of older saves, only read to migrate it into {@link #balance}
      */
     @Data
-    private double money;
+    @Deprecated
+    private Double money;
 
     /**
      * The warps the town has
      */
     @Data
     private Map<String, Location> warps = new HashMap<>();
+    /**
+     * The names of the warps, searchable by prefix
+     */
+    private final PrefixIndex<Location> warpIndex = new PrefixIndex<>();
 
     /**
      * The map of player to rank
      */
     @Data
-    private Map<UUID, String> playerRanks = new HashMap<>();
+    private Map<UUID, String> playerRanks = new ConcurrentHashMap<>();
 
     /**
      * The name of the town
@@ -61,16 +82,31 @@ public class Town {
      */
     @Data
     private Set<TownRank> ranks = new HashSet<>();
+    /**
+     * The town's ranks by their internal name, rebuilt from {@link #ranks} on load
+     */
+    private final Map<String, TownRank> ranksByName = new ConcurrentHashMap<>();
+
+    /**
+     * The live balance of the town in minor units, updated lock-free so the bank can be used from any thread
+     */
+    private final AtomicLong liveBalance = new AtomicLong();
+    /**
+     * Whether the balance, members or region changed since the town was last saved
+     */
+    private final AtomicBoolean dirty = new AtomicBoolean();
 
     /**
      * Creates a new town with the specified name and folder it's located in
      *
      * @param name The name of the town
      * @param storage The folder the town is stored in
+     * @param statistics The statistics to tell about balance changes
      */
-    Town(String name, StorageFolder storage) {
+    Town(String name, StorageFolder storage, TownStatistics statistics) {
         this.name = name;
         this.storage = storage;
+        this.statistics = statistics;
     }
 
     public Location getSpawnLocation() {
@@ -79,26 +115,130 @@ public class Town {
 
     public void setSpawnLocation(Location spawnLocation) {
         this.spawnLocation = spawnLocation;
+        markDirty();
     }
 
     public Region getRegion() {
         return region;
     }
 
-    public void setRegion(Region region) {
+    void setRegion(Region region) {
         this.region = region;
     }
 
-    public double getMoney() {
-        return money;
+    public long getMoney() {
+        return liveBalance.get();
+    }
+
+    public void setMoney(long money) {
+        liveBalance.set(money);
+        dirty.set(true);
+        statistics.wealthChanged(this);
+    }
+
+    /**
+     * Adds money to the town's balance
+     *
+     * @param amount The amount to add in minor units
+     * @return The new balance
+     * @throws ArithmeticException If the balance would overflow, in which case it's left unchanged
+     */
+    public long deposit(long amount) {
+        long current, updated;
+        do {
+            current = liveBalance.get();
+            updated = Math.addExact(current, amount);
+        } while(!liveBalance.compareAndSet(current, updated));
+        dirty.set(true);
+        statistics.wealthChanged(this);
+        return updated;
+    }
+
+    /**
+     * Takes money from the town's balance if it can afford it
+     *
+     * @param amount The amount to take in minor units
+     * @return The new balance, or {@link BalanceLedger#INSUFFICIENT_FUNDS} if the town can't afford it
+     */
+    public long withdraw(long amount) {
+        long current, updated;
+        do {
+            current = liveBalance.get();
+            updated = current - amount;
+            if(updated < 0) return BalanceLedger.INSUFFICIENT_FUNDS;
+        } while(!liveBalance.compareAndSet(current, updated));
+        dirty.set(true);
+        statistics.wealthChanged(this);
+        return updated;
+    }
+
+    /**
+     * Flags the town to be written out on the next flush
+     */
+    void markDirty() {
+        dirty.set(true);
+    }
+
+    /**
+     * Checks whether the town changed since it was last snapshotted
+     *
+     * @return Whether it's dirty
+     */
+    boolean isDirty() {
+        return dirty.get();
     }
 
-    public void setMoney(double money) {
-        this.money = money;
+    /**
+     * Clears the dirty flag
+     *
+     * @return Whether the town had changed since the last save
+     */
+    boolean clearDirty() {
+        return dirty.getAndSet(false);
     }
 
     public Map<String, Location> getWarps() {
-        return warps;
+        return Collections.unmodifiableMap(warps);
+    }
+
+    /**
+     * Sets a warp, replacing any warp with the same name
+     *
+     * @param name The name of the warp, lowercased
+     * @param location Where the warp goes
+     */
+    public void setWarp(String name, Location location) {
+        final String lower = name.toLowerCase();
+        warps.put(lower, location);
+        warpIndex.put(lower, location);
+        markDirty();
+    }
+
+    /**
+     * Removes a warp
+     *
+     * @param name The name of the warp, ignoring case
+     * @return The removed warp's location, or null if there was no such warp
+     */
+    public Location removeWarp(String name) {
+        final String lower = name.toLowerCase();
+        final Location removed = warps.remove(lower);
+        if(removed != null) {
+            warpIndex.remove(lower);
+            markDirty();
+        }
+        return removed;
+    }
+
+    /**
+     * Completes a partial warp name
+     *
+     * @param prefix The start of the name, ignoring case
+     * @param limit The most names to return
+     * @return The matching warp names in alphabetical order
+     */
+    public List<String> completeWarp(String prefix, int limit) {
+        return warpIndex.complete(prefix, limit);
     }
 
     public String getName() {
@@ -107,6 +247,7 @@ public class Town {
 
     public void setName(String townName) {
         name = townName;
+        markDirty();
     }
 
     /**
@@ -117,14 +258,99 @@ public class Town {
      * @throws RuntimeException If there was some weird error
      */
     public TownRank getTownRankFor(TownyPlayer player) {
-        return getRank(playerRanks.get(player.getUuid())).orElseThrow(() -> new RuntimeException("Unable to find player's rank."));
+        final TownRank rank = rankOf(player.getUuid());
+        if(rank == null) throw new RuntimeException("Unable to find player's rank.");
+        return rank;
+    }
+
+    /**
+     * Gets the rank a player holds in the town
+     *
+     * @param uuid The player's uuid
+     * @return The {@link TownRank}, or null if they aren't a member
+     */
+    public TownRank rankOf(UUID uuid) {
+        final String rank = playerRanks.get(uuid);
+        return rank == null ? null : ranksByName.get(rank);
+    }
+
+    /**
+     * Gets every member of the town
+     *
+     * @return An unmodifiable view of the members' uuids
+     */
+    public Set<UUID> getMembers() {
+        return Collections.unmodifiableSet(playerRanks.keySet());
+    }
+
+    /**
+     * Gives a player a rank in the town, only called by {@link TownManager} so its member index stays in sync
+     *
+     * @param uuid The player's uuid
+     * @param rank The internal name of the rank
+     */
+    void setPlayerRank(UUID uuid, String rank) {
+        if(!ranksByName.containsKey(rank)) throw new IllegalArgumentException("Unknown rank " + rank);
+        playerRanks.put(uuid, rank);
+    }
+
+    /**
+     * Removes a player from the town, only called by {@link TownManager} so its member index stays in sync
+     *
+     * @param uuid The player's uuid
+     * @return Whether they were a member
+     */
+    boolean removePlayer(UUID uuid) {
+        return playerRanks.remove(uuid) != null;
+    }
+
+    /**
+     * Checks if a player is a member of the town
+     *
+     * @param uuid The player's uuid
+     * @return Whether they're a member
+     */
+    public boolean isMember(UUID uuid) {
+        return playerRanks.containsKey(uuid);
+    }
+
+    /**
+     * Checks if a player's rank in the town grants a permission
+     *
+     * @param uuid The player's uuid
+     * @param permission The permission to check
+     * @return Whether they have it, false if they aren't a member
+     */
+    public boolean hasPermission(UUID uuid, Permission permission) {
+        final TownRank rank = rankOf(uuid);
+        return rank != null && rank.hasPermission(permission);
+    }
+
+    /**
+     * Checks if a player holds the owner rank of the town
+     *
+     * @param uuid The player's uuid
+     * @return Whether they own the town
+     */
+    public boolean isOwner(UUID uuid) {
+        return rankOf(uuid) instanceof OwnerRank;
     }
 
     /**
      * Saves the town to the file
      */
     public void save() {
-        storage.packup(name, this);
+        storage.write(name, pack());
+    }
+
+    /**
+     * Snapshots the town into bytes, which must happen on the main thread since that's where the town is changed
+     *
+     * @return The packed town, for {@link StorageFolder#write(String, byte[])}
+     */
+    byte[] pack() {
+        balance = liveBalance.get();
+        return storage.pack(this);
     }
 
     /**
@@ -132,17 +358,88 @@ public class Town {
      */
     public void load() {
         storage.unbox(name, this);
+        if(money != null) {
+            balance = Money.fromDouble(money);
+            money = null;
+        }
+        liveBalance.set(balance);
+        playerRanks = new ConcurrentHashMap<>(playerRanks);
+        ranksByName.clear();
+        ranks.forEach(rank -> ranksByName.put(rank.getInternalName(), rank));
+        warpIndex.clear();
+        warps.forEach(warpIndex::put);
     }
 
     /**
      * Generates the generic set of ranks all towns have
      */
     public void generateDefaultRanks(TownyPlayer townOwner) {
-        ranks.add(new OwnerRank("owner", "Mayor"));
-        ranks.add(new DefaultRank("member", "Member", Collections.emptyList()));
+        addRank(new OwnerRank("owner", "Mayor"));
+        addRank(new DefaultRank("member", "Member", Arrays.asList(
+                TownPermissions.TOWN_BUILD, TownPermissions.TOWN_DESTROY, TownPermissions.TOWN_INTERACT)));
         playerRanks.put(townOwner.getUuid(), "owner");
     }
 
+    /**
+     * Adds a rank to the town, replacing any rank with the same internal name
+     *
+     * @param rank The rank to add
+     */
+    public void addRank(TownRank rank) {
+        final TownRank previous = ranksByName.put(rank.getInternalName(), rank);
+        if(previous != null) ranks.remove(previous);
+        ranks.add(rank);
+        markDirty();
+    }
+
+    /**
+     * Removes a deletable rank from the town
+     *
+     * @param name The internal name of the rank
+     * @return Whether the rank was removed
+     * @throws IllegalStateException If players still hold the rank
+     */
+    public boolean removeRank(String name) {
+        final TownRank rank = ranksByName.get(name);
+        if(rank == null || !rank.isDeletable()) return false;
+        if(playerRanks.containsValue(name)) throw new IllegalStateException("Players still hold the rank " + name);
+
+        ranksByName.remove(name);
+        markDirty();
+        return ranks.remove(rank);
+    }
+
+    /**
+     * Adds a permission to one of the town's ranks
+     *
+     * @param rank The internal name of the rank
+     * @param permission The permission to add
+     * @return Whether there is a rank by that name
+     */
+    public boolean addRankPermission(String rank, Permission permission) {
+        final TownRank found = ranksByName.get(rank);
+        if(found == null) return false;
+
+        found.addPermission(permission);
+        markDirty();
+        return true;
+    }
+
+    /**
+     * Removes a permission from one of the town's ranks
+     *
+     * @param rank The internal name of the rank
+     * @param node The node of the permission to remove
+     * @return Whether the rank had the permission
+     */
+    public boolean removeRankPermission(String rank, String node) {
+        final TownRank found = ranksByName.get(rank);
+        if(found == null || !found.removePermission(node)) return false;
+
+        markDirty();
+        return true;
+    }
+
     /**
      *  Gets a rank by its name
      *
@@ -150,9 +447,7 @@ public class Town {
      * @return An {@link Optional<TownRank>} empty if no rank found
      */
     public Optional<TownRank> getRank(String name) {
-        return ranks.stream()
-                .filter(r -> r.getInternalName().equals(name))
-                .findFirst();
+        return name == null ? Optional.empty() : Optional.ofNullable(ranksByName.get(name));
     }
 
     @Override
@@ -175,7 +470,7 @@ public class Town {
         final StringBuilder sb = new StringBuilder("Town{");
         sb.append("spawnLocation=").append(spawnLocation);
         sb.append(", region=").append(region);
-        sb.append(", money=").append(money);
+        sb.append(", balance=").append(Money.format(getMoney()));
         sb.append(", warps=").append(warps);
         sb.append(", townName='").append(name).append('\'');
         sb.append('}');
@@ -0,0 +1,144 @@
+package net.wesjd.towny.ngin.town;
+
+import net.wesjd.towny.ngin.util.Region;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads and writes the file of {@link TownSummary}s, so towns don't need to be loaded to know where and who they are
+ */
+class TownIndex {
+
+    /**
+     * The version of the index format
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The file the index is stored in
+     */
+    private final File file;
+
+    /**
+     * Creates an index stored in a file
+     *
+     * @param file The file
+     */
+    TownIndex(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets when the index was last written
+     *
+     * @return The modification time, 0 if it doesn't exist
+     */
+    long lastModified() {
+        return file.lastModified();
+    }
+
+    /**
+     * Reads every summary from the file
+     *
+     * @return The summaries by town name, empty if there's no readable index
+     */
+    Map<String, TownSummary> read() {
+        final Map<String, TownSummary> summaries = new HashMap<>();
+        if(!file.exists()) return summaries;
+
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if(in.readInt() != VERSION) return summaries;
+
+            final int size = in.readInt();
+            for(int i = 0; i < size; i++) {
+                final String name = in.readUTF();
+                final Region region = in.readBoolean() ? new Region(in.readUTF(),
+                        in.readDouble(), in.readDouble(), in.readDouble(),
+                        in.readDouble(), in.readDouble(), in.readDouble()) : null;
+                final long balance = in.readLong();
+
+                String spawnWorld = null;
+                double x = 0, y = 0, z = 0;
+                float yaw = 0, pitch = 0;
+                if(in.readBoolean()) {
+                    spawnWorld = in.readUTF();
+                    x = in.readDouble();
+                    y = in.readDouble();
+                    z = in.readDouble();
+                    yaw = in.readFloat();
+                    pitch = in.readFloat();
+                }
+
+                final UUID[] members = new UUID[in.readInt()];
+                for(int j = 0; j < members.length; j++) members[j] = new UUID(in.readLong(), in.readLong());
+
+                summaries.put(name, new TownSummary(name, region, balance, spawnWorld, x, y, z, yaw, pitch, members));
+            }
+            return summaries;
+        } catch (IOException ex) {
+            summaries.clear();
+            return summaries;
+        }
+    }
+
+    /**
+     * Writes every summary to a temporary file, then swaps it in
+     *
+     * @param summaries The summaries to write
+     */
+    synchronized void write(Collection<TownSummary> summaries) {
+        final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(VERSION);
+            out.writeInt(summaries.size());
+            for(TownSummary summary : summaries) {
+                out.writeUTF(summary.getName());
+
+                final Region region = summary.getRegion();
+                out.writeBoolean(region != null);
+                if(region != null) {
+                    out.writeUTF(region.getWorldName());
+                    out.writeDouble(region.getMinX());
+                    out.writeDouble(region.getMinY());
+                    out.writeDouble(region.getMinZ());
+                    out.writeDouble(region.getMaxX());
+                    out.writeDouble(region.getMaxY());
+                    out.writeDouble(region.getMaxZ());
+                }
+                out.writeLong(summary.getBalance());
+
+                out.writeBoolean(summary.getSpawnWorld() != null);
+                if(summary.getSpawnWorld() != null) {
+                    out.writeUTF(summary.getSpawnWorld());
+                    out.writeDouble(summary.getSpawnX());
+                    out.writeDouble(summary.getSpawnY());
+                    out.writeDouble(summary.getSpawnZ());
+                    out.writeFloat(summary.getSpawnYaw());
+                    out.writeFloat(summary.getSpawnPitch());
+                }
+
+                final Collection<UUID> members = summary.getMembers();
+                out.writeInt(members.size());
+                for(UUID member : members) {
+                    out.writeLong(member.getMostSignificantBits());
+                    out.writeLong(member.getLeastSignificantBits());
+                }
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to write the town index", ex);
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to replace the town index", ex);
+        }
+    }
+
+}
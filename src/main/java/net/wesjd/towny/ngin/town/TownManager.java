@@ -1,45 +1,249 @@
 package net.wesjd.towny.ngin.town;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
+import net.wesjd.towny.ngin.Towny;
 import net.wesjd.towny.ngin.storage.StorageFolder;
+import net.wesjd.towny.ngin.util.PrefixIndex;
+import net.wesjd.towny.ngin.util.Region;
+import org.bukkit.Location;
+import org.bukkit.World;
 
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
 
 /**
- * Manages all towns
+ * Manages all towns.
+ * A {@link TownSummary} of every town is always kept in memory, while full towns are either all loaded at startup
+ * or, with <code>towns.lazy-loading</code> enabled, loaded on first access and evicted once idle.
  */
 public class TownManager {
 
+    /**
+     * The injected main class instance
+     */
+    @Inject
+    private Towny towny;
     /**
      * The injected storage folder
      */
     @Inject @Named("towns")
     private StorageFolder storage;
+    /**
+     * The injected town statistics
+     */
+    @Inject
+    private TownStatistics statistics;
 
     /**
-     * A hashmap of all the current {@link Town}s, used to save on lookup times
+     * The {@link Town}s currently in memory, used to save on lookup times.
+     * Also coalesces concurrent loads of the same town.
+     */
+    private volatile Cache<String, Town> towns = CacheBuilder.newBuilder().build();
+    /**
+     * The summary of every town, loaded or not
+     */
+    private final Map<String, TownSummary> summaries = new ConcurrentHashMap<>();
+    /**
+     * The name of every town, searchable by prefix
+     */
+    private final PrefixIndex<String> nameIndex = new PrefixIndex<>();
+    /**
+     * The file the summaries are kept in between restarts
+     */
+    private TownIndex index;
+    /**
+     * Whether the summaries changed since the index was last written
+     */
+    private final AtomicBoolean indexDirty = new AtomicBoolean();
+    /**
+     * The name of the town each player is a member of
+     */
+    private final Map<UUID, String> memberTowns = new ConcurrentHashMap<>();
+    /**
+     * Towns evicted from memory whose write-back hasn't finished yet. A town accessed again in the meantime
+     * is handed back from here rather than reloaded from its stale file.
      */
-    private final Map<String, Town> towns = new HashMap<>();
+    private final Map<String, Town> evicted = new ConcurrentHashMap<>();
+    /**
+     * The spatial index of every town's region
+     */
+    private final RegionIndex regions = new RegionIndex();
+    /**
+     * Bumped whenever the index changes, so callers can tell when their cached lookups are stale
+     */
+    private int regionVersion;
+    /**
+     * Writes town files and the index in the order they were snapshotted, so an older snapshot never lands
+     * after a newer one and no file is written by two threads at once
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("ngin-town-writer").setDaemon(true).build());
 
     /**
-     * Saves all the currently stored towns
+     * Saves all the currently loaded towns and the index
      */
     public void saveTowns() {
-        towns.values().forEach(Town::save);
+        towns.cleanUp();
+        evicted.values().forEach(town -> {
+            town.clearDirty();
+            saveTown(town);
+        });
+        towns.asMap().values().forEach(town -> {
+            town.clearDirty();
+            saveTown(town);
+        });
+        writeIndex();
+    }
+
+    /**
+     * Waits for every queued write to finish, called once the last towns were saved
+     */
+    public void shutdown() {
+        writer.shutdown();
+        try {
+            if(!writer.awaitTermination(30, TimeUnit.SECONDS))
+                towny.getLogger().warning("Gave up waiting for town saves to finish.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Saves the towns that changed since they were last saved and evicts idle ones.
+     * Towns are snapshotted here, so this must run on the main thread, and only the bytes are written asynchronously.
+     */
+    public void flush() {
+        towns.cleanUp();
+        evicted.values().stream()
+                .filter(Town::clearDirty)
+                .forEach(this::saveTown);
+        towns.asMap().values().stream()
+                .filter(Town::clearDirty)
+                .forEach(this::saveTown);
+        if(indexDirty.get()) writeIndex();
     }
 
     /**
-     * Loads all the stored towns from the towns folder
+     * Loads the town summaries, and every town unless lazy loading is enabled.
+     * Towns saved after the index was last written are loaded to refresh their summary.
      */
     public void loadTowns() {
-        towns.clear();
-        Arrays.stream(storage.getAllFiles())
-                .map(File::getName)
-                .map(this::createTown)
-                .forEach(this::addTown);
-        towns.values().forEach(Town::load);
+        final boolean lazy = towny.getConfig().getBoolean("towns.lazy-loading", false);
+        if(lazy) {
+            towns = CacheBuilder.newBuilder()
+                    .expireAfterAccess(towny.getConfig().getInt("towns.idle-minutes", 15), TimeUnit.MINUTES)
+                    .removalListener(this::onRemoval)
+                    .build();
+        } else towns = CacheBuilder.newBuilder().build();
+
+        index = new TownIndex(new File(towny.getDataFolder(), "towns.index"));
+        summaries.clear();
+        nameIndex.clear();
+        regions.clear();
+        memberTowns.clear();
+        evicted.clear();
+        statistics.clear();
+
+        final Map<String, TownSummary> indexed = index.read();
+        final long indexedAt = index.lastModified();
+        for(File file : storage.getAllFiles()) {
+            final String name = file.getName();
+            TownSummary summary = indexed.get(name);
+            if(!lazy || summary == null || file.lastModified() > indexedAt) {
+                final Town town = loadTown(name);
+                towns.put(name, town);
+                summary = TownSummary.of(town);
+            }
+
+            summaries.put(name, summary);
+            nameIndex.put(name, name);
+            regions.put(name, summary.getRegion());
+            summary.getMembers().forEach(uuid -> memberTowns.put(uuid, name));
+            statistics.track(summary);
+        }
+        regionVersion++;
+        writeIndex();
+
+        towny.getLogger().info("Indexed " + summaries.size() + " towns, " + towns.size() + " loaded.");
+    }
+
+    /**
+     * Loads a town from its file
+     *
+     * @param name The name of the town
+     * @return The loaded {@link Town}
+     */
+    private Town loadTown(String name) {
+        final Town town = createTown(name);
+        town.load();
+        return town;
+    }
+
+    /**
+     * Snapshots a town and refreshes its summary, then queues the snapshot to be written.
+     * An evicted town is forgotten once written, unless it changed again in the meantime.
+     * It's checked again after being forgotten, since it may change between the check and the removal.
+     *
+     * @param town The town to save
+     */
+    private void saveTown(Town town) {
+        final byte[] packed = town.pack();
+        summaries.put(town.getName(), TownSummary.of(town));
+        indexDirty.set(true);
+        writer.execute(() -> {
+            try {
+                storage.write(town.getName(), packed);
+                if(!town.isDirty() && evicted.remove(town.getName(), town) && town.isDirty())
+                    evicted.putIfAbsent(town.getName(), town);
+            } catch (RuntimeException ex) {
+                town.markDirty();
+                towny.getLogger().log(Level.SEVERE, "Unable to save town " + town.getName(), ex);
+            }
+        });
+    }
+
+    /**
+     * Queues the current summaries to be written to the index
+     */
+    private void writeIndex() {
+        indexDirty.set(false);
+        final List<TownSummary> snapshot = new ArrayList<>(summaries.values());
+        writer.execute(() -> {
+            try {
+                index.write(snapshot);
+            } catch (RuntimeException ex) {
+                indexDirty.set(true);
+                towny.getLogger().log(Level.SEVERE, "Unable to write the town index", ex);
+            }
+        });
+    }
+
+    /**
+     * Queues an idle town for write-back when it's evicted.
+     * Guava calls this on whichever thread triggered the eviction, so it only hands the town over
+     * and the next {@link #flush()} snapshots it on the main thread.
+     *
+     * @param notification The removal notification
+     */
+    private void onRemoval(RemovalNotification<String, Town> notification) {
+        if(!notification.wasEvicted()) return;
+
+        final Town town = notification.getValue();
+        town.markDirty();
+        evicted.put(notification.getKey(), town);
     }
 
     /**
@@ -49,7 +253,7 @@ public class TownManager {
      * @return A newly created town
      */
     public Town createTown(String name) {
-        return new Town(name.toLowerCase(), storage);
+        return new Town(name.toLowerCase(), storage, statistics);
     }
 
     /**
@@ -59,6 +263,164 @@ public class TownManager {
      */
     public void addTown(Town town) {
         towns.put(town.getName(), town);
+        final TownSummary summary = TownSummary.of(town);
+        summaries.put(town.getName(), summary);
+        statistics.track(summary);
+        nameIndex.put(town.getName(), town.getName());
+        regions.put(town.getName(), town.getRegion());
+        town.getMembers().forEach(uuid -> memberTowns.put(uuid, town.getName()));
+        town.markDirty();
+        indexDirty.set(true);
+        regionVersion++;
+    }
+
+    /**
+     * Gives a player a rank in a town, adding them as a member if they weren't one
+     *
+     * @param town The town
+     * @param uuid The player's uuid
+     * @param rank The internal name of the rank
+     * @throws IllegalArgumentException If the town has no rank by that name
+     * @throws IllegalStateException If the player is a member of another town
+     */
+    public void setMember(Town town, UUID uuid, String rank) {
+        if(!town.getRank(rank).isPresent()) throw new IllegalArgumentException("Unknown rank " + rank);
+
+        final String current = memberTowns.putIfAbsent(uuid, town.getName());
+        if(current != null && !current.equals(town.getName()))
+            throw new IllegalStateException("Player is already a member of " + current);
+        try {
+            town.setPlayerRank(uuid, rank);
+        } catch (RuntimeException ex) {
+            if(current == null) memberTowns.remove(uuid, town.getName());
+            throw ex;
+        }
+        town.markDirty();
+        statistics.update(TownMetric.MEMBERS, town.getName(), town.getMembers().size());
+    }
+
+    /**
+     * Removes a player from a town
+     *
+     * @param town The town
+     * @param uuid The player's uuid
+     * @return Whether they were a member
+     */
+    public boolean removeMember(Town town, UUID uuid) {
+        memberTowns.remove(uuid, town.getName());
+        town.markDirty();
+        final boolean removed = town.removePlayer(uuid);
+        statistics.update(TownMetric.MEMBERS, town.getName(), town.getMembers().size());
+        return removed;
+    }
+
+    /**
+     * Gets the town a player is a member of
+     *
+     * @param uuid The player's uuid
+     * @return The {@link Town}, or null if they aren't in one
+     */
+    public Town getTownOf(UUID uuid) {
+        return getTown(memberTowns.get(uuid));
+    }
+
+    /**
+     * Gets the name of the town a player is a member of, without loading the town
+     *
+     * @param uuid The player's uuid
+     * @return The lowercase name of the town, or null if they aren't in one
+     */
+    public String getTownNameOf(UUID uuid) {
+        return memberTowns.get(uuid);
+    }
+
+    /**
+     * Changes a town's region, keeping the spatial index up to date
+     *
+     * @param town The town
+     * @param region The new region, or null to unclaim everything
+     */
+    public void setRegion(Town town, Region region) {
+        town.setRegion(region);
+        town.markDirty();
+        regions.put(town.getName(), region);
+        regionVersion++;
+        statistics.update(TownMetric.CLAIM, town.getName(), region == null ? 0 : region.getArea());
+    }
+
+    /**
+     * Claims a region for a town, replacing its current region if it doesn't overlap any other town.
+     * The check and the update happen in one call on the main thread, so no claim can slip in between.
+     *
+     * @param town The town
+     * @param region The region to claim
+     * @return The other towns the region overlaps, empty if the claim was made
+     */
+    public Set<String> claim(Town town, Region region) {
+        final Set<String> conflicts = new LinkedHashSet<>(regions.townsIntersecting(region.getWorldName(),
+                region.getMinBlockX(), region.getMinBlockY(), region.getMinBlockZ(),
+                region.getMaxBlockX(), region.getMaxBlockY(), region.getMaxBlockZ()));
+        conflicts.remove(town.getName());
+        if(conflicts.isEmpty()) setRegion(town, region);
+        return conflicts;
+    }
+
+    public int getRegionVersion() {
+        return regionVersion;
+    }
+
+    /**
+     * Finds the town owning a block
+     *
+     * @param world The world the block is in
+     * @param x The block x
+     * @param y The block y
+     * @param z The block z
+     * @return The {@link Town}, or null if the block isn't claimed
+     */
+    public Town townAt(World world, int x, int y, int z) {
+        return getTown(regions.townAt(world.getName(), x, y, z));
+    }
+
+    /**
+     * Finds the town owning a location
+     *
+     * @param location The location
+     * @return The {@link Town}, or null if the location isn't claimed
+     */
+    public Town townAt(Location location) {
+        return townAt(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Checks whether any town has claimed part of a chunk
+     *
+     * @param world The world the chunk is in
+     * @param chunkX The chunk x
+     * @param chunkZ The chunk z
+     * @return Whether part of the chunk is claimed
+     */
+    public boolean isChunkClaimed(World world, int chunkX, int chunkZ) {
+        return !regions.townsIntersecting(world.getName(),
+                chunkX << 4, 0, chunkZ << 4, (chunkX << 4) + 15, world.getMaxHeight(), (chunkZ << 4) + 15).isEmpty();
+    }
+
+    /**
+     * Finds every town whose region intersects with a region
+     *
+     * @param region The region to check
+     * @return The intersecting {@link Town}s
+     */
+    public Set<Town> townsIntersecting(Region region) {
+        final Set<Town> found = new LinkedHashSet<>();
+        regions.townsIntersecting(region.getWorldName(),
+                region.getMinBlockX(), region.getMinBlockY(), region.getMinBlockZ(),
+                region.getMaxBlockX(), region.getMaxBlockY(), region.getMaxBlockZ())
+                .forEach(name -> {
+                    final Town town = getTown(name);
+                    if(town != null) found.add(town);
+                });
+        return found;
     }
 
     /**
@@ -72,16 +434,62 @@ public class TownManager {
     }
 
     /**
-     * Get a town by its name
+     * Get a town by its name, ignoring case, loading it if it isn't in memory.
+     * A town still waiting on its eviction write-back is taken back as is, so no change to it is lost.
      *
      * @param name The name of the town
      * @return A {@link Town} or null if there is no town by that name
      */
     public Town getTown(String name) {
-        return towns.get(name);
+        if(name == null) return null;
+
+        final String lower = name.toLowerCase();
+        if(!summaries.containsKey(lower)) return null;
+        try {
+            return towns.get(lower, () -> {
+                final Town pending = evicted.remove(lower);
+                return pending != null ? pending : loadTown(lower);
+            });
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            throw new RuntimeException("Unable to load town " + lower, ex.getCause());
+        }
     }
 
+    /**
+     * Gets a town's summary, which never requires loading the town
+     *
+     * @param name The name of the town
+     * @return The {@link TownSummary}, or null if there is no town by that name
+     */
+    public TownSummary getSummary(String name) {
+        return name == null ? null : summaries.get(name.toLowerCase());
+    }
+
+    public Collection<TownSummary> getSummaries() {
+        return Collections.unmodifiableCollection(summaries.values());
+    }
+
+    /**
+     * Completes a partial town name
+     *
+     * @param prefix The start of the name, ignoring case
+     * @param limit The most names to return
+     * @return The matching town names in alphabetical order
+     */
+    public List<String> completeTownName(String prefix, int limit) {
+        return nameIndex.complete(prefix, limit);
+    }
+
+    public Set<String> getTownNames() {
+        return Collections.unmodifiableSet(summaries.keySet());
+    }
+
+    /**
+     * Gets the towns currently in memory, which with lazy loading isn't every town
+     *
+     * @return The loaded {@link Town}s
+     */
     public Collection<Town> getTowns() {
-        return towns.values();
+        return Collections.unmodifiableCollection(towns.asMap().values());
     }
 }
@@ -0,0 +1,73 @@
+package net.wesjd.towny.ngin.town;
+
+import net.wesjd.towny.ngin.util.Money;
+
+/**
+ * A statistic towns are ranked by
+ */
+public enum TownMetric {
+
+    WEALTH("Wealth") {
+        @Override
+        long of(TownSummary summary) {
+            return summary.getBalance();
+        }
+
+        @Override
+        public String format(long value) {
+            return Money.format(value);
+        }
+    },
+    MEMBERS("Members") {
+        @Override
+        long of(TownSummary summary) {
+            return summary.getMemberCount();
+        }
+
+        @Override
+        public String format(long value) {
+            return value + (value == 1 ? " member" : " members");
+        }
+    },
+    CLAIM("Claim size") {
+        @Override
+        long of(TownSummary summary) {
+            return summary.getRegion() == null ? 0 : summary.getRegion().getArea();
+        }
+
+        @Override
+        public String format(long value) {
+            return value + (value == 1 ? " block" : " blocks");
+        }
+    };
+
+    /**
+     * The name players see
+     */
+    private final String displayName;
+
+    TownMetric(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Reads the metric from a town's summary
+     *
+     * @param summary The summary
+     * @return The value of the metric
+     */
+    abstract long of(TownSummary summary);
+
+    /**
+     * Formats a value of the metric for players
+     *
+     * @param value The value
+     * @return The formatted value
+     */
+    public abstract String format(long value);
+
+}
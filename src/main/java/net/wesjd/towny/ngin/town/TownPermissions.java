@@ -7,5 +7,9 @@ public class TownPermissions {
     public static final Permission TOWN_ALL = new Permission("towny.town.*", "all permissions"),
             TOWN_WARP_CREATE = new Permission("towny.town.createwarp", "create warps"),
             TOWN_WARP_REMOVE = new Permission("towny.town.removewarp", "remove warps"),
-            TOWN_WARP_RENAME = new Permission("towny.town.renamewarp", "rename warps");
+            TOWN_WARP_RENAME = new Permission("towny.town.renamewarp", "rename warps"),
+            TOWN_BUILD = new Permission("towny.town.build", "place blocks in the town"),
+            TOWN_DESTROY = new Permission("towny.town.destroy", "break blocks in the town"),
+            TOWN_INTERACT = new Permission("towny.town.interact", "use doors, chests and other blocks in the town"),
+            TOWN_CLAIM = new Permission("towny.town.claim", "claim land for the town");
 }
@@ -1,7 +1,10 @@
 package net.wesjd.towny.ngin.town;
 
+import net.wesjd.towny.ngin.util.PermissionTrie;
 import org.bukkit.permissions.Permission;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -21,6 +24,10 @@ public class TownRank {
      * The permissions this rank has
      */
     private List<Permission> permissions;
+    /**
+     * The compiled permissions, rebuilt whenever the permissions change
+     */
+    private volatile PermissionTrie compiled;
 
     /**
      * Creates a new town rank
@@ -32,7 +39,8 @@ public class TownRank {
     public TownRank(String internalName, String display, List<Permission> permissions) {
         this.internalName = internalName;
         displayName = display;
-        this.permissions = permissions;
+        this.permissions = new ArrayList<>(permissions);
+        compiled = new PermissionTrie(this.permissions);
     }
 
     public String getInternalName() {
@@ -44,11 +52,33 @@ public class TownRank {
     }
 
     public List<Permission> getPermissions() {
-        return permissions;
+        return Collections.unmodifiableList(permissions);
+    }
+
+    /**
+     * Adds a permission to this rank, only called by {@link Town} so the change gets saved
+     *
+     * @param permission The permission to add
+     */
+    void addPermission(Permission permission) {
+        permissions.add(permission);
+        compiled = new PermissionTrie(permissions);
+    }
+
+    /**
+     * Removes a permission from this rank, only called by {@link Town} so the change gets saved
+     *
+     * @param node The node of the permission to remove
+     * @return Whether the rank had the permission
+     */
+    boolean removePermission(String node) {
+        final boolean removed = permissions.removeIf(p -> p.getName().equalsIgnoreCase(node));
+        if(removed) compiled = new PermissionTrie(permissions);
+        return removed;
     }
 
     public boolean hasPermission(Permission permission) {
-        return permissions.stream().anyMatch(p -> p.getName().equalsIgnoreCase(permission.getName()));
+        return compiled.contains(permission.getName());
     }
 
     public boolean isDeletable() {
@@ -0,0 +1,117 @@
+package net.wesjd.towny.ngin.town;
+
+import net.wesjd.towny.ngin.util.Leaderboard;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a {@link Leaderboard} of every town for each {@link TownMetric}, updated as towns change
+ * so ranking never needs to load or scan towns
+ */
+public class TownStatistics {
+
+    /**
+     * The leaderboard of each metric, keyed by town name
+     */
+    private final Map<TownMetric, Leaderboard<String>> leaderboards = new EnumMap<>(TownMetric.class);
+    /**
+     * Towns whose balance changed since the wealth leaderboard was last updated.
+     * Bank operations only add to this set, so they stay lock-free.
+     */
+    private final Set<Town> pendingWealth = ConcurrentHashMap.newKeySet();
+
+    public TownStatistics() {
+        for(TownMetric metric : TownMetric.values()) leaderboards.put(metric, new Leaderboard<>());
+    }
+
+    /**
+     * Sets every metric of a town from its summary
+     *
+     * @param summary The town's summary
+     */
+    void track(TownSummary summary) {
+        for(TownMetric metric : TownMetric.values()) update(metric, summary.getName(), metric.of(summary));
+    }
+
+    /**
+     * Sets one metric of a town
+     *
+     * @param metric The metric
+     * @param town The name of the town
+     * @param value The new value
+     */
+    void update(TownMetric metric, String town, long value) {
+        leaderboards.get(metric).update(town, value);
+    }
+
+    /**
+     * Queues a town's wealth to be updated before the next query
+     *
+     * @param town The town whose balance changed
+     */
+    void wealthChanged(Town town) {
+        pendingWealth.add(town);
+    }
+
+    /**
+     * Removes every town
+     */
+    void clear() {
+        pendingWealth.clear();
+        leaderboards.values().forEach(Leaderboard::clear);
+    }
+
+    /**
+     * Gets a page of the towns ranked by a metric
+     *
+     * @param metric The metric
+     * @param offset How many towns to skip from the top
+     * @param limit The most towns to return
+     * @return The ranked town names
+     */
+    public List<Leaderboard.Entry<String>> top(TownMetric metric, int offset, int limit) {
+        return leaderboard(metric).top(offset, limit);
+    }
+
+    /**
+     * Gets a town's position by a metric
+     *
+     * @param metric The metric
+     * @param town The name of the town
+     * @return The position starting at 1, or 0 if the town isn't ranked
+     */
+    public int rankOf(TownMetric metric, String town) {
+        return leaderboard(metric).rankOf(town);
+    }
+
+    /**
+     * Gets the amount of ranked towns
+     *
+     * @return The amount of towns
+     */
+    public int size() {
+        return leaderboards.get(TownMetric.WEALTH).size();
+    }
+
+    /**
+     * Gets a leaderboard, applying any queued wealth changes first.
+     * Each town is dequeued before its balance is read, so a change made meanwhile queues it again.
+     *
+     * @param metric The metric
+     * @return The metric's leaderboard
+     */
+    private Leaderboard<String> leaderboard(TownMetric metric) {
+        if(metric == TownMetric.WEALTH && !pendingWealth.isEmpty()) {
+            final Leaderboard<String> wealth = leaderboards.get(TownMetric.WEALTH);
+            for(Town town : pendingWealth) {
+                if(pendingWealth.remove(town)) wealth.update(town.getName(), town.getMoney());
+            }
+        }
+        return leaderboards.get(metric);
+    }
+
+}
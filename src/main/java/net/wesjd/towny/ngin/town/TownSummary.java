@@ -0,0 +1,147 @@
+package net.wesjd.towny.ngin.town;
+
+import net.wesjd.towny.ngin.util.Region;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The metadata of a town that is always kept in memory, even when the town itself isn't loaded
+ */
+public class TownSummary {
+
+    /**
+     * The name of the town
+     */
+    private final String name;
+    /**
+     * The region of the town, null if it has none
+     */
+    private final Region region;
+    /**
+     * The balance of the town in minor units when it was summarized
+     */
+    private final long balance;
+    /**
+     * The name of the world the spawn is in, null if the town has no spawn
+     */
+    private final String spawnWorld;
+    /**
+     * The spawn's coordinates
+     */
+    private final double spawnX, spawnY, spawnZ;
+    /**
+     * The spawn's rotation
+     */
+    private final float spawnYaw, spawnPitch;
+    /**
+     * The members of the town
+     */
+    private final UUID[] members;
+
+    /**
+     * Creates a summary
+     *
+     * @param name The name of the town
+     * @param region The region of the town, null if none
+     * @param balance The balance of the town in minor units
+     * @param spawnWorld The world of the spawn, null if none
+     * @param spawnX The spawn x
+     * @param spawnY The spawn y
+     * @param spawnZ The spawn z
+     * @param spawnYaw The spawn yaw
+     * @param spawnPitch The spawn pitch
+     * @param members The members of the town
+     */
+    TownSummary(String name, Region region, long balance, String spawnWorld, double spawnX, double spawnY, double spawnZ,
+                float spawnYaw, float spawnPitch, UUID[] members) {
+        this.name = name;
+        this.region = region;
+        this.balance = balance;
+        this.spawnWorld = spawnWorld;
+        this.spawnX = spawnX;
+        this.spawnY = spawnY;
+        this.spawnZ = spawnZ;
+        this.spawnYaw = spawnYaw;
+        this.spawnPitch = spawnPitch;
+        this.members = members;
+    }
+
+    /**
+     * Summarizes a loaded town
+     *
+     * @param town The town
+     * @return The summary
+     */
+    static TownSummary of(Town town) {
+        final Location spawn = town.getSpawnLocation();
+        final World world = spawn == null ? null : spawn.getWorld();
+        final UUID[] members = town.getMembers().toArray(new UUID[0]);
+        if(world == null) return new TownSummary(town.getName(), town.getRegion(), town.getMoney(), null, 0, 0, 0, 0, 0, members);
+
+        return new TownSummary(town.getName(), town.getRegion(), town.getMoney(), world.getName(),
+                spawn.getX(), spawn.getY(), spawn.getZ(), spawn.getYaw(), spawn.getPitch(), members);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Region getRegion() {
+        return region;
+    }
+
+    public long getBalance() {
+        return balance;
+    }
+
+    /**
+     * Gets the spawn of the town
+     *
+     * @return A new {@link Location}, or null if the town has no spawn or its world isn't loaded
+     */
+    public Location getSpawnLocation() {
+        if(spawnWorld == null) return null;
+
+        final World world = Bukkit.getWorld(spawnWorld);
+        return world == null ? null : new Location(world, spawnX, spawnY, spawnZ, spawnYaw, spawnPitch);
+    }
+
+    public int getMemberCount() {
+        return members.length;
+    }
+
+    public List<UUID> getMembers() {
+        return Collections.unmodifiableList(Arrays.asList(members));
+    }
+
+    String getSpawnWorld() {
+        return spawnWorld;
+    }
+
+    double getSpawnX() {
+        return spawnX;
+    }
+
+    double getSpawnY() {
+        return spawnY;
+    }
+
+    double getSpawnZ() {
+        return spawnZ;
+    }
+
+    float getSpawnYaw() {
+        return spawnYaw;
+    }
+
+    float getSpawnPitch() {
+        return spawnPitch;
+    }
+
+}
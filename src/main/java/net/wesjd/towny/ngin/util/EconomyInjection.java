@@ -3,10 +3,15 @@ package net.wesjd.towny.ngin.util;
 import com.google.inject.Inject;
 import net.milkbowl.vault.economy.AbstractEconomy;
 import net.milkbowl.vault.economy.EconomyResponse;
-import net.wesjd.towny.ngin.player.OfflineTownyPlayer;
+import net.wesjd.towny.ngin.player.BalanceLedger;
 import net.wesjd.towny.ngin.player.PlayerManager;
+import net.wesjd.towny.ngin.town.Town;
+import net.wesjd.towny.ngin.town.TownManager;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
 
-import java.text.NumberFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -20,6 +25,16 @@ public class EconomyInjection extends AbstractEconomy {
      */
     @Inject
     private PlayerManager playerManager;
+    /**
+     * The injected balance ledger
+     */
+    @Inject
+    private BalanceLedger ledger;
+    /**
+     * The injected town manager, every town is a bank
+     */
+    @Inject
+    private TownManager townManager;
 
     @Override
     public boolean isEnabled() {
@@ -33,17 +48,17 @@ public class EconomyInjection extends AbstractEconomy {
 
     @Override
     public boolean hasBankSupport() {
-        return false;
+        return true;
     }
 
     @Override
     public int fractionalDigits() {
-        return 0;
+        return Money.FRACTIONAL_DIGITS;
     }
 
     @Override
     public String format(double amount) {
-        return NumberFormat.getCurrencyInstance().format(amount);
+        return Money.format(Money.fromDouble(amount));
     }
 
     @Override
@@ -57,121 +72,297 @@ public class EconomyInjection extends AbstractEconomy {
     }
 
     @Override
-    public EconomyResponse depositPlayer(String playerName, double amount) {
-        if(amount < 0) return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, "Can't deposit negative");
+    public boolean hasAccount(String playerName) {
+        final UUID uuid = resolve(playerName);
+        return uuid != null && ledger.hasAccount(uuid);
+    }
 
-        final UUID playerUuid = playerManager.getUUIDFor(playerName);
-        OfflineTownyPlayer player = playerManager.getPlayer(playerUuid);
-        boolean createdOffline = false;
-        if(player == null) {
-            player = playerManager.createOfflineTownyPlayer(playerUuid);
-            createdOffline = true;
-        }
-        player.addMoney(amount);
-        if(createdOffline) player.save();
-        return new EconomyResponse(amount, player.getMoney(), EconomyResponse.ResponseType.SUCCESS, "none");
+    @Override
+    public boolean hasAccount(OfflinePlayer player) {
+        return ledger.hasAccount(player.getUniqueId());
     }
 
     @Override
-    public EconomyResponse depositPlayer(String playerName, String worldName, double amount) {
-        return depositPlayer(playerName, amount);
+    public boolean hasAccount(String playerName, String worldName) {
+        return hasAccount(playerName);
     }
-    
-    //------------------------- DOESN'T NEED IMPLEMENTED ------------------------
 
     @Override
-    public boolean hasAccount(String s) {
-        return false;
+    public boolean hasAccount(OfflinePlayer player, String worldName) {
+        return hasAccount(player);
     }
 
     @Override
-    public boolean hasAccount(String s, String s1) {
-        return false;
+    public double getBalance(String playerName) {
+        final UUID uuid = resolve(playerName);
+        return uuid == null ? 0 : Money.toDouble(ledger.getBalance(uuid));
     }
 
     @Override
-    public double getBalance(String s) {
-        return 0;
+    public double getBalance(OfflinePlayer player) {
+        return Money.toDouble(ledger.getBalance(player.getUniqueId()));
     }
 
     @Override
-    public double getBalance(String s, String s1) {
-        return 0;
+    public double getBalance(String playerName, String worldName) {
+        return getBalance(playerName);
     }
 
     @Override
-    public boolean has(String s, double v) {
-        return false;
+    public double getBalance(OfflinePlayer player, String worldName) {
+        return getBalance(player);
     }
 
     @Override
-    public boolean has(String s, String s1, double v) {
-        return false;
+    public boolean has(String playerName, double amount) {
+        final UUID uuid = resolve(playerName);
+        return uuid != null && ledger.getBalance(uuid) >= Money.fromDouble(amount);
     }
 
     @Override
-    public EconomyResponse withdrawPlayer(String s, double v) {
-        return null;
+    public boolean has(OfflinePlayer player, double amount) {
+        return ledger.getBalance(player.getUniqueId()) >= Money.fromDouble(amount);
     }
 
     @Override
-    public EconomyResponse withdrawPlayer(String s, String s1, double v) {
-        return null;
+    public boolean has(String playerName, String worldName, double amount) {
+        return has(playerName, amount);
     }
 
     @Override
-    public EconomyResponse createBank(String s, String s1) {
-        return null;
+    public boolean has(OfflinePlayer player, String worldName, double amount) {
+        return has(player, amount);
     }
 
     @Override
-    public EconomyResponse deleteBank(String s) {
-        return null;
+    public EconomyResponse withdrawPlayer(String playerName, double amount) {
+        return withdraw(resolve(playerName), amount);
     }
 
     @Override
-    public EconomyResponse bankBalance(String s) {
-        return null;
+    public EconomyResponse withdrawPlayer(OfflinePlayer player, double amount) {
+        return withdraw(player.getUniqueId(), amount);
     }
 
     @Override
-    public EconomyResponse bankHas(String s, double v) {
-        return null;
+    public EconomyResponse withdrawPlayer(String playerName, String worldName, double amount) {
+        return withdrawPlayer(playerName, amount);
     }
 
     @Override
-    public EconomyResponse bankWithdraw(String s, double v) {
-        return null;
+    public EconomyResponse withdrawPlayer(OfflinePlayer player, String worldName, double amount) {
+        return withdrawPlayer(player, amount);
     }
 
     @Override
-    public EconomyResponse bankDeposit(String s, double v) {
-        return null;
+    public EconomyResponse depositPlayer(String playerName, double amount) {
+        return deposit(resolve(playerName), amount);
     }
 
     @Override
-    public EconomyResponse isBankOwner(String s, String s1) {
-        return null;
+    public EconomyResponse depositPlayer(OfflinePlayer player, double amount) {
+        return deposit(player.getUniqueId(), amount);
     }
 
     @Override
-    public EconomyResponse isBankMember(String s, String s1) {
-        return null;
+    public EconomyResponse depositPlayer(String playerName, String worldName, double amount) {
+        return depositPlayer(playerName, amount);
     }
 
     @Override
-    public List<String> getBanks() {
-        return null;
+    public EconomyResponse depositPlayer(OfflinePlayer player, String worldName, double amount) {
+        return depositPlayer(player, amount);
+    }
+
+    @Override
+    public boolean createPlayerAccount(String playerName) {
+        final UUID uuid = resolve(playerName);
+        return uuid != null && ledger.open(uuid, 0, null);
+    }
+
+    @Override
+    public boolean createPlayerAccount(OfflinePlayer player) {
+        return ledger.open(player.getUniqueId(), 0, player.getName());
     }
 
     @Override
-    public boolean createPlayerAccount(String s) {
-        return false;
+    public boolean createPlayerAccount(String playerName, String worldName) {
+        return createPlayerAccount(playerName);
     }
 
     @Override
-    public boolean createPlayerAccount(String s, String s1) {
-        return false;
+    public boolean createPlayerAccount(OfflinePlayer player, String worldName) {
+        return createPlayerAccount(player);
+    }
+
+    /**
+     * Takes money from a player's account
+     *
+     * @param uuid The player's uuid, null if they couldn't be resolved
+     * @param amount The amount to take
+     * @return The vault response
+     */
+    private EconomyResponse withdraw(UUID uuid, double amount) {
+        if(!Money.isValid(amount)) return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, "Invalid amount");
+        if(amount < 0) return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, "Can't withdraw negative");
+        if(uuid == null) return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, "Unknown player");
+
+        final long balance = ledger.withdraw(uuid, Money.fromDouble(amount));
+        if(balance == BalanceLedger.INSUFFICIENT_FUNDS)
+            return new EconomyResponse(0, Money.toDouble(ledger.getBalance(uuid)), EconomyResponse.ResponseType.FAILURE, "Insufficient funds");
+        return new EconomyResponse(amount, Money.toDouble(balance), EconomyResponse.ResponseType.SUCCESS, "none");
+    }
+
+    /**
+     * Adds money to a player's account
+     *
+     * @param uuid The player's uuid, null if they couldn't be resolved
+     * @param amount The amount to add
+     * @return The vault response
+     */
+    private EconomyResponse deposit(UUID uuid, double amount) {
+        if(!Money.isValid(amount)) return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, "Invalid amount");
+        if(amount < 0) return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, "Can't deposit negative");
+        if(uuid == null) return new EconomyResponse(0, 0, EconomyResponse.ResponseType.FAILURE, "Unknown player");
+
+        try {
+            return new EconomyResponse(amount, Money.toDouble(ledger.deposit(uuid, Money.fromDouble(amount))), EconomyResponse.ResponseType.SUCCESS, "none");
+        } catch (ArithmeticException ex) {
+            return new EconomyResponse(0, Money.toDouble(ledger.getBalance(uuid)), EconomyResponse.ResponseType.FAILURE, "Balance too large");
+        }
+    }
+
+    /**
+     * Resolves a player's uuid from their name, preferring names already known to the ledger
+     *
+     * @param playerName The player's name
+     * @return The player's uuid, or null if it couldn't be resolved
+     */
+    private UUID resolve(String playerName) {
+        final UUID known = ledger.lookupName(playerName);
+        if(known != null) return known;
+
+        final Player online = Bukkit.getPlayerExact(playerName);
+        if(online != null) return online.getUniqueId();
+
+        try {
+            return playerManager.getUUIDFor(playerName);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public EconomyResponse createBank(String name, String playerName) {
+        final Town town = findTown(name);
+        if(town == null) return failure(0, "Banks are created along with towns");
+
+        final UUID uuid = resolve(playerName);
+        if(uuid == null || !town.isOwner(uuid)) return failure(town.getMoney(), "Only the town's owner can open its bank");
+        return success(0, town.getMoney());
+    }
+
+    @Override
+    public EconomyResponse deleteBank(String name) {
+        final Town town = findTown(name);
+        return failure(town == null ? 0 : town.getMoney(), "Banks are deleted along with towns");
+    }
+
+    @Override
+    public EconomyResponse bankBalance(String name) {
+        final Town town = findTown(name);
+        if(town == null) return failure(0, "Unknown town");
+        return success(0, town.getMoney());
+    }
+
+    @Override
+    public EconomyResponse bankHas(String name, double amount) {
+        final Town town = findTown(name);
+        if(town == null) return failure(0, "Unknown town");
+
+        final long balance = town.getMoney();
+        return balance >= Money.fromDouble(amount) ? success(0, balance) : failure(balance, "Insufficient funds");
+    }
+
+    @Override
+    public EconomyResponse bankWithdraw(String name, double amount) {
+        if(!Money.isValid(amount)) return failure(0, "Invalid amount");
+        if(amount < 0) return failure(0, "Can't withdraw negative");
+        final Town town = findTown(name);
+        if(town == null) return failure(0, "Unknown town");
+
+        final long balance = town.withdraw(Money.fromDouble(amount));
+        if(balance == BalanceLedger.INSUFFICIENT_FUNDS) return failure(town.getMoney(), "Insufficient funds");
+        return success(amount, balance);
+    }
+
+    @Override
+    public EconomyResponse bankDeposit(String name, double amount) {
+        if(!Money.isValid(amount)) return failure(0, "Invalid amount");
+        if(amount < 0) return failure(0, "Can't deposit negative");
+        final Town town = findTown(name);
+        if(town == null) return failure(0, "Unknown town");
+
+        try {
+            return success(amount, town.deposit(Money.fromDouble(amount)));
+        } catch (ArithmeticException ex) {
+            return failure(town.getMoney(), "Balance too large");
+        }
+    }
+
+    @Override
+    public EconomyResponse isBankOwner(String name, String playerName) {
+        final Town town = findTown(name);
+        if(town == null) return failure(0, "Unknown town");
+
+        final UUID uuid = resolve(playerName);
+        return uuid != null && town.isOwner(uuid) ? success(0, town.getMoney()) : failure(town.getMoney(), "Not the owner");
+    }
+
+    @Override
+    public EconomyResponse isBankMember(String name, String playerName) {
+        final Town town = findTown(name);
+        if(town == null) return failure(0, "Unknown town");
+
+        final UUID uuid = resolve(playerName);
+        return uuid != null && town.isMember(uuid) ? success(0, town.getMoney()) : failure(town.getMoney(), "Not a member");
+    }
+
+    @Override
+    public List<String> getBanks() {
+        return new ArrayList<>(townManager.getTownNames());
+    }
+
+    /**
+     * Finds the town backing a bank
+     *
+     * @param name The name of the bank
+     * @return The town, or null if there is no town by that name
+     */
+    private Town findTown(String name) {
+        return name == null ? null : townManager.getTown(name.toLowerCase());
+    }
+
+    /**
+     * Creates a successful bank response
+     *
+     * @param amount The amount that was changed
+     * @param balance The bank's balance in minor units
+     * @return The vault response
+     */
+    private EconomyResponse success(double amount, long balance) {
+        return new EconomyResponse(amount, Money.toDouble(balance), EconomyResponse.ResponseType.SUCCESS, "none");
+    }
+
+    /**
+     * Creates a failed bank response
+     *
+     * @param balance The bank's balance in minor units
+     * @param error Why it failed
+     * @return The vault response
+     */
+    private EconomyResponse failure(long balance, String error) {
+        return new EconomyResponse(0, Money.toDouble(balance), EconomyResponse.ResponseType.FAILURE, error);
     }
 
 }
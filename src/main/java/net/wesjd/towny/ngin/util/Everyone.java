@@ -1,17 +1,33 @@
 package net.wesjd.towny.ngin.util;
 
-import net.wesjd.towny.ngin.Towny;
-import net.wesjd.towny.ngin.player.PlayerManager;
-import net.wesjd.towny.ngin.player.TownyPlayer;
+import com.comphenix.protocol.PacketType;
+import com.comphenix.protocol.ProtocolLibrary;
+import com.comphenix.protocol.ProtocolManager;
+import com.comphenix.protocol.events.PacketContainer;
+import com.comphenix.protocol.events.PacketListener;
+import com.comphenix.protocol.wrappers.WrappedChatComponent;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
 
-import java.util.function.Consumer;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
 
 /**
- * Contains utility methods that are directed towards all online players
+ * Contains utility methods that are directed towards all online players.
+ * Messages are built into a single packet up front and that packet is sent to everyone,
+ * rather than converting the same text to a chat component once per player.
  */
 public class Everyone {
 
+    /**
+     * The position of a chat packet shown in the chat box
+     */
+    private static final byte CHAT_POSITION = 0;
+    /**
+     * The position of a chat packet shown above the hotbar
+     */
+    private static final byte ACTION_BAR_POSITION = 2;
+
     /**
      * Kicks all online players with a message
      *
@@ -27,7 +43,7 @@ public class Everyone {
      * @param message The action bar message
      */
     public static void sendActionBar(String message) {
-        each(player -> player.sendActionBar(message));
+        send(chatPacket(WrappedChatComponent.fromText(message), ACTION_BAR_POSITION), Bukkit.getOnlinePlayers());
     }
 
     /**
@@ -36,17 +52,72 @@ public class Everyone {
      * @param message The message to send the players
      */
     public static void message(String message) {
-        each(player -> player.message(message));
+        broadcast(message, Bukkit.getOnlinePlayers());
+    }
+
+    /**
+     * Messages a group of players, converting the message to chat components only once.
+     * Safe to call off the main thread.
+     *
+     * @param message The message to send, with legacy color codes and a line per packet like {@link Player#sendMessage(String)}
+     * @param recipients The players to send it to
+     */
+    public static void broadcast(String message, Collection<? extends Player> recipients) {
+        if(recipients.isEmpty()) return;
+
+        for(WrappedChatComponent line : WrappedChatComponent.fromChatMessage(message)) {
+            send(chatPacket(line, CHAT_POSITION), recipients);
+        }
+    }
+
+    /**
+     * Builds a chat packet
+     *
+     * @param component The component to show
+     * @param position Where the client shows it
+     * @return The packet
+     */
+    private static PacketContainer chatPacket(WrappedChatComponent component, byte position) {
+        final PacketContainer packet = new PacketContainer(PacketType.Play.Server.CHAT);
+        packet.getChatComponents().write(0, component);
+        packet.getBytes().write(0, position);
+        return packet;
+    }
+
+    /**
+     * Sends the same packet to every recipient.
+     * If another plugin listens to outgoing chat it may rewrite the packet it's given for one player,
+     * so each recipient then gets a shallow copy instead, still sharing the converted component.
+     *
+     * @param packet The packet to send
+     * @param recipients The players to send it to
+     * @throws RuntimeException If the packet couldn't be sent to someone, after it was sent to everyone else
+     */
+    private static void send(PacketContainer packet, Collection<? extends Player> recipients) {
+        final ProtocolManager protocol = ProtocolLibrary.getProtocolManager();
+        final boolean rewritable = isChatIntercepted(protocol);
+        InvocationTargetException failure = null;
+        for(Player recipient : recipients) {
+            try {
+                protocol.sendServerPacket(recipient, rewritable ? packet.shallowClone() : packet);
+            } catch (InvocationTargetException ex) {
+                failure = ex;
+            }
+        }
+        if(failure != null) throw new RuntimeException("Failed to send chat packet", failure);
     }
 
     /**
-     * Iterates through all online players, utility method
+     * Checks whether any packet listener intercepts outgoing chat
      *
-     * @param consumer Callback for each iteration
+     * @param protocol The protocol manager
+     * @return Whether a listener may see, and rewrite, the chat packets sent
      */
-    private static void each(Consumer<TownyPlayer> consumer) {
-        final PlayerManager pm = Towny.getPlugin().getInjector().getInstance(PlayerManager.class);
-        pm.getOnlinePlayers().forEach(consumer);
+    private static boolean isChatIntercepted(ProtocolManager protocol) {
+        for(PacketListener listener : protocol.getPacketListeners()) {
+            if(listener.getSendingWhitelist().getTypes().contains(PacketType.Play.Server.CHAT)) return true;
+        }
+        return false;
     }
 
 }
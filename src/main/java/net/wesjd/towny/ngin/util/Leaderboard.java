@@ -0,0 +1,285 @@
+package net.wesjd.towny.ngin.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranks keys by a score, highest first, with ties broken by the key's natural order.
+ * Backed by an order-statistic treap, so updates, rank lookups and finding the start of a page are logarithmic.
+ *
+ * @param <K> The type of the ranked keys
+ */
+public class Leaderboard<K extends Comparable<K>> {
+
+    /**
+     * The current score of every ranked key
+     */
+    private final Map<K, Long> scores = new HashMap<>();
+    /**
+     * The root of the treap, null while empty
+     */
+    private Node<K> root;
+    /**
+     * The state of the generator for node priorities
+     */
+    private int seed = 0x2545F491;
+
+    /**
+     * Sets a key's score, inserting it if it isn't ranked yet
+     *
+     * @param key The key
+     * @param score The new score
+     */
+    public synchronized void update(K key, long score) {
+        final Long previous = scores.put(key, score);
+        if(previous != null) {
+            if(previous == score) return;
+            root = delete(root, key, previous);
+        }
+        root = insert(root, new Node<>(key, score, nextPriority()));
+    }
+
+    /**
+     * Removes a key from the leaderboard
+     *
+     * @param key The key
+     * @return Whether it was ranked
+     */
+    public synchronized boolean remove(K key) {
+        final Long previous = scores.remove(key);
+        if(previous == null) return false;
+
+        root = delete(root, key, previous);
+        return true;
+    }
+
+    /**
+     * Gets a key's score
+     *
+     * @param key The key
+     * @return The score, or null if it isn't ranked
+     */
+    public synchronized Long getScore(K key) {
+        return scores.get(key);
+    }
+
+    /**
+     * Gets a key's position on the leaderboard
+     *
+     * @param key The key
+     * @return The position starting at 1, or 0 if it isn't ranked
+     */
+    public synchronized int rankOf(K key) {
+        final Long score = scores.get(key);
+        if(score == null) return 0;
+
+        int before = 0;
+        Node<K> node = root;
+        while(node != null) {
+            final int compared = compare(key, score, node.key, node.score);
+            if(compared == 0) return before + size(node.left) + 1;
+            if(compared < 0) node = node.left;
+            else {
+                before += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Gets a page of the leaderboard
+     *
+     * @param offset How many entries to skip from the top
+     * @param limit The most entries to return
+     * @return The entries in order
+     */
+    public synchronized List<Entry<K>> top(int offset, int limit) {
+        final List<Entry<K>> entries = new ArrayList<>(Math.max(0, Math.min(limit, size(root) - offset)));
+        if(offset >= 0 && limit > 0) collect(root, offset, offset, limit, entries);
+        return entries;
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    /**
+     * Removes every key
+     */
+    public synchronized void clear() {
+        scores.clear();
+        root = null;
+    }
+
+    /**
+     * Collects the entries of a subtree in order, skipping the first few
+     *
+     * @param node The subtree
+     * @param skip How many entries of the subtree to skip
+     * @param before How many entries of the whole leaderboard come before the first entry collected
+     * @param limit The most entries to collect in total
+     * @param into Where to collect them
+     */
+    private void collect(Node<K> node, int skip, int before, int limit, List<Entry<K>> into) {
+        if(node == null || into.size() >= limit) return;
+
+        final int leftSize = size(node.left);
+        if(skip < leftSize) collect(node.left, skip, before, limit, into);
+        if(into.size() >= limit) return;
+        if(skip <= leftSize) into.add(new Entry<>(before + into.size() + 1, node.key, node.score));
+        collect(node.right, Math.max(0, skip - leftSize - 1), before, limit, into);
+    }
+
+    private Node<K> insert(Node<K> node, Node<K> inserted) {
+        if(node == null) return inserted;
+
+        if(compare(inserted.key, inserted.score, node.key, node.score) < 0) {
+            node.left = insert(node.left, inserted);
+            if(node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, inserted);
+            if(node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        node.update();
+        return node;
+    }
+
+    private Node<K> delete(Node<K> node, K key, long score) {
+        if(node == null) return null;
+
+        final int compared = compare(key, score, node.key, node.score);
+        if(compared < 0) node.left = delete(node.left, key, score);
+        else if(compared > 0) node.right = delete(node.right, key, score);
+        else {
+            if(node.left == null) return node.right;
+            if(node.right == null) return node.left;
+
+            if(node.left.priority > node.right.priority) {
+                node = rotateRight(node);
+                node.right = delete(node.right, key, score);
+            } else {
+                node = rotateLeft(node);
+                node.left = delete(node.left, key, score);
+            }
+        }
+        node.update();
+        return node;
+    }
+
+    private Node<K> rotateRight(Node<K> node) {
+        final Node<K> left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.update();
+        left.update();
+        return left;
+    }
+
+    private Node<K> rotateLeft(Node<K> node) {
+        final Node<K> right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.update();
+        right.update();
+        return right;
+    }
+
+    /**
+     * Orders higher scores first, then keys in their natural order
+     */
+    private int compare(K key, long score, K otherKey, long otherScore) {
+        if(score != otherScore) return score > otherScore ? -1 : 1;
+        return key.compareTo(otherKey);
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * A ranked key on the leaderboard
+     */
+    public static class Entry<K> {
+
+        /**
+         * The position of the key, starting at 1
+         */
+        private final int rank;
+        /**
+         * The ranked key
+         */
+        private final K key;
+        /**
+         * The key's score
+         */
+        private final long score;
+
+        Entry(int rank, K key, long score) {
+            this.rank = rank;
+            this.key = key;
+            this.score = score;
+        }
+
+        public int getRank() {
+            return rank;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public long getScore() {
+            return score;
+        }
+
+    }
+
+    /**
+     * A node of the treap
+     */
+    private static class Node<K> {
+
+        /**
+         * The ranked key
+         */
+        private final K key;
+        /**
+         * The key's score, which orders the node along with the key
+         */
+        private final long score;
+        /**
+         * The heap priority of the node
+         */
+        private final int priority;
+        /**
+         * The children of the node
+         */
+        private Node<K> left, right;
+        /**
+         * The amount of nodes in this subtree
+         */
+        private int size = 1;
+
+        Node(K key, long score, int priority) {
+            this.key = key;
+            this.score = score;
+            this.priority = priority;
+        }
+
+        void update() {
+            size = 1 + Leaderboard.size(left) + Leaderboard.size(right);
+        }
+
+    }
+
+}
@@ -0,0 +1,162 @@
+package net.wesjd.towny.ngin.util;
+
+import java.util.Arrays;
+
+/**
+ * An open addressing hash map from primitive longs to objects, so lookups never box their key.
+ * Null values aren't allowed, since a null slot marks an empty bucket.
+ *
+ * @param <V> The type of the values
+ */
+public class LongObjectMap<V> {
+
+    /**
+     * The capacity a new map starts with, always a power of two
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The keys of each bucket
+     */
+    private long[] keys;
+    /**
+     * The values of each bucket, null if the bucket is empty
+     */
+    private Object[] values;
+    /**
+     * The amount of entries in the map
+     */
+    private int size;
+
+    /**
+     * Creates a new, empty map
+     */
+    public LongObjectMap() {
+        keys = new long[DEFAULT_CAPACITY];
+        values = new Object[DEFAULT_CAPACITY];
+    }
+
+    /**
+     * Gets the value for a key
+     *
+     * @param key The key
+     * @return The value, or null if there isn't one
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        final int mask = keys.length - 1;
+        for(int i = index(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if(keys[i] == key) return (V) values[i];
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value for a key
+     *
+     * @param key The key
+     * @param value The value, not null
+     * @return The previous value, or null if there wasn't one
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if(value == null) throw new NullPointerException("value");
+        if((size + 1) * 4 > keys.length * 3) resize(keys.length * 2);
+
+        final int mask = keys.length - 1;
+        int i = index(key, mask);
+        for(; values[i] != null; i = (i + 1) & mask) {
+            if(keys[i] == key) {
+                final V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * Removes the value for a key
+     *
+     * @param key The key
+     * @return The removed value, or null if there wasn't one
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        final int mask = keys.length - 1;
+        int i = index(key, mask);
+        for(; values[i] != null; i = (i + 1) & mask) {
+            if(keys[i] == key) break;
+        }
+        if(values[i] == null) return null;
+
+        final V removed = (V) values[i];
+        values[i] = null;
+        size--;
+
+        //shift the following entries back so no probe chain is broken
+        for(int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            final int home = index(keys[j], mask);
+            if(((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = keys[j];
+                values[i] = values[j];
+                values[j] = null;
+                i = j;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every entry
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Rehashes every entry into new arrays
+     *
+     * @param capacity The new capacity, a power of two
+     */
+    private void resize(int capacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+
+        final int mask = capacity - 1;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldValues[i] == null) continue;
+            int j = index(oldKeys[i], mask);
+            while(values[j] != null) j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    /**
+     * Gets the home bucket of a key
+     *
+     * @param key The key
+     * @param mask The capacity minus one
+     * @return The bucket index
+     */
+    private static int index(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+}
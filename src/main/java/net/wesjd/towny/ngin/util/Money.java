@@ -0,0 +1,94 @@
+package net.wesjd.towny.ngin.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Utilities for money, which is stored as a long of minor units (cents)
+ * so arithmetic is exact and doesn't allocate
+ */
+public final class Money {
+
+    /**
+     * The amount of digits after the decimal point
+     */
+    public static final int FRACTIONAL_DIGITS = 2;
+    /**
+     * The amount of minor units in one major unit
+     */
+    public static final long SCALE = 100;
+    /**
+     * The largest decimal amount that fits in minor units
+     */
+    private static final double MAX_AMOUNT = Long.MAX_VALUE / (double) SCALE;
+    /**
+     * How many ulps of the scaled amount count as a half cent tie, wider than the error of scaling a binary amount
+     */
+    private static final int TIE_ULPS = 4;
+
+    private Money() {
+    }
+
+    /**
+     * Checks whether a decimal amount can be stored in minor units
+     *
+     * @param amount The decimal amount
+     * @return Whether the amount is a finite number that fits
+     */
+    public static boolean isValid(double amount) {
+        return Math.abs(amount) < MAX_AMOUNT;
+    }
+
+    /**
+     * Converts a decimal amount to minor units, rounding half cents away from zero.
+     * The amount is rounded as it's written rather than as its binary value, so 1.005 becomes 101 cents.
+     * Only amounts too close to a half cent to round from their binary value are rounded from their decimal string.
+     * Amounts that don't fit are clamped, and NaN becomes 0.
+     *
+     * @param amount The decimal amount
+     * @return The amount in minor units
+     */
+    public static long fromDouble(double amount) {
+        if(!isValid(amount)) return Math.round(amount * SCALE);
+
+        final double scaled = amount * SCALE;
+        final double floor = Math.floor(scaled);
+        final double fraction = scaled - floor;
+        if(Math.abs(fraction - 0.5) > TIE_ULPS * Math.ulp(scaled)) return (long) floor + (fraction < 0.5 ? 0 : 1);
+        return new BigDecimal(Double.toString(amount)).setScale(FRACTIONAL_DIGITS, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Converts minor units to a decimal amount, used at the vault boundary
+     *
+     * @param minor The amount in minor units
+     * @return The decimal amount
+     */
+    public static double toDouble(long minor) {
+        return minor / (double) SCALE;
+    }
+
+    /**
+     * Formats an amount of money, such as $1,234.56
+     *
+     * @param minor The amount in minor units
+     * @return The formatted amount
+     */
+    public static String format(long minor) {
+        final StringBuilder sb = new StringBuilder(24);
+        if(minor < 0) sb.append('-');
+        sb.append('$');
+
+        final String major = Long.toString(Math.abs(minor / SCALE));
+        for(int i = 0; i < major.length(); i++) {
+            if(i > 0 && (major.length() - i) % 3 == 0) sb.append(',');
+            sb.append(major.charAt(i));
+        }
+
+        final long cents = Math.abs(minor % SCALE);
+        sb.append('.');
+        if(cents < 10) sb.append('0');
+        return sb.append(cents).toString();
+    }
+
+}
@@ -0,0 +1,92 @@
+package net.wesjd.towny.ngin.util;
+
+import org.bukkit.permissions.Permission;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compiled set of permission nodes, split on dots into a trie.
+ * Supports wildcard nodes such as <code>towny.town.*</code>, which grant every node below them.
+ */
+public class PermissionTrie {
+
+    /**
+     * The segment that grants everything below its parent
+     */
+    private static final String WILDCARD = "*";
+
+    /**
+     * The root of the trie, representing the empty node
+     */
+    private final Node root = new Node();
+
+    /**
+     * Compiles a set of permissions
+     *
+     * @param permissions The permissions to compile
+     */
+    public PermissionTrie(Collection<Permission> permissions) {
+        permissions.forEach(permission -> insert(permission.getName()));
+    }
+
+    /**
+     * Inserts a node into the trie
+     *
+     * @param node The node to insert
+     */
+    private void insert(String node) {
+        Node current = root;
+        for(String segment : node.toLowerCase().split("\\.")) {
+            if(segment.equals(WILDCARD)) {
+                current.wildcard = true;
+                return;
+            }
+            current = current.children.computeIfAbsent(segment.intern(), key -> new Node());
+        }
+        current.terminal = true;
+    }
+
+    /**
+     * Checks whether the node is granted, either directly or by a wildcard
+     *
+     * @param node The node to check
+     * @return Whether the node is granted
+     */
+    public boolean contains(String node) {
+        final String lower = node.toLowerCase();
+        Node current = root;
+        int start = 0;
+        while(true) {
+            if(current.wildcard) return true;
+
+            final int end = lower.indexOf('.', start);
+            current = current.children.get(end == -1 ? lower.substring(start) : lower.substring(start, end));
+            if(current == null) return false;
+            if(end == -1) return current.terminal;
+            start = end + 1;
+        }
+    }
+
+    /**
+     * A single segment of a node
+     */
+    private static class Node {
+
+        /**
+         * The segments below this one
+         */
+        private final Map<String, Node> children = new HashMap<>(4);
+        /**
+         * Whether a node ends at this segment
+         */
+        private boolean terminal;
+        /**
+         * Whether everything below this segment is granted
+         */
+        private boolean wildcard;
+
+    }
+
+}
@@ -0,0 +1,258 @@
+package net.wesjd.towny.ngin.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A case-insensitive ternary search trie from names to values, used to complete partial names without scanning.
+ * Each node holds one character, and matches are found in alphabetical order so the first few are returned quickly.
+ *
+ * @param <V> The type of the values
+ */
+public class PrefixIndex<V> {
+
+    /**
+     * The root of the trie, null while empty
+     */
+    private Node<V> root;
+    /**
+     * The amount of names in the index
+     */
+    private int size;
+
+    /**
+     * Adds a name to the index
+     *
+     * @param name The name, matched ignoring case
+     * @param value The value for the name, not null
+     * @return The previous value for the name, or null if there wasn't one
+     */
+    public synchronized V put(String name, V value) {
+        if(name.isEmpty()) throw new IllegalArgumentException("Names can't be empty");
+        if(value == null) throw new NullPointerException("value");
+
+        if(root == null) root = new Node<>(fold(name.charAt(0)));
+        Node<V> node = root;
+        int i = 0;
+        while(true) {
+            final char c = fold(name.charAt(i));
+            if(c < node.c) {
+                if(node.lo == null) node.lo = new Node<>(c);
+                node = node.lo;
+            } else if(c > node.c) {
+                if(node.hi == null) node.hi = new Node<>(c);
+                node = node.hi;
+            } else if(++i < name.length()) {
+                if(node.eq == null) node.eq = new Node<>(fold(name.charAt(i)));
+                node = node.eq;
+            } else break;
+        }
+
+        final V previous = node.value;
+        if(previous == null) size++;
+        node.name = name.intern();
+        node.value = value;
+        return previous;
+    }
+
+    /**
+     * Gets the value for a name
+     *
+     * @param name The name, ignoring case
+     * @return The value, or null if the name isn't indexed
+     */
+    public synchronized V get(String name) {
+        final Node<V> node = find(name);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Removes a name from the index
+     *
+     * @param name The name, ignoring case
+     * @return The removed value, or null if the name wasn't indexed
+     */
+    public synchronized V remove(String name) {
+        final Node<V> node = find(name);
+        if(node == null || node.value == null) return null;
+
+        final V removed = node.value;
+        node.value = null;
+        node.name = null;
+        size--;
+        root = prune(root, name, 0);
+        return removed;
+    }
+
+    /**
+     * Finds the names starting with a prefix, in alphabetical order
+     *
+     * @param prefix The prefix, ignoring case
+     * @param limit The most names to return
+     * @return The matching names, as they were added
+     */
+    public synchronized List<String> complete(String prefix, int limit) {
+        final List<String> names = new ArrayList<>(Math.min(limit, 16));
+        collect(prefix, limit, names, true);
+        return names;
+    }
+
+    /**
+     * Finds the values of the names starting with a prefix, in alphabetical order of their names
+     *
+     * @param prefix The prefix, ignoring case
+     * @param limit The most values to return
+     * @return The matching values
+     */
+    public synchronized List<V> search(String prefix, int limit) {
+        final List<V> values = new ArrayList<>(Math.min(limit, 16));
+        collect(prefix, limit, values, false);
+        return values;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Counts the nodes of the trie, so tests can check that removed names leave nothing behind
+     *
+     * @return The amount of nodes
+     */
+    synchronized int nodeCount() {
+        return count(root);
+    }
+
+    /**
+     * Removes every name
+     */
+    public synchronized void clear() {
+        root = null;
+        size = 0;
+    }
+
+    /**
+     * Collects the names or values below a prefix
+     */
+    @SuppressWarnings("unchecked")
+    private void collect(String prefix, int limit, List<?> into, boolean names) {
+        if(limit <= 0 || root == null) return;
+        if(prefix.isEmpty()) {
+            walk(root, limit, (List<Object>) into, names);
+            return;
+        }
+
+        final Node<V> node = find(prefix);
+        if(node == null) return;
+        if(node.value != null) ((List<Object>) into).add(names ? node.name : node.value);
+        if(node.eq != null) walk(node.eq, limit, (List<Object>) into, names);
+    }
+
+    /**
+     * Walks a subtree in alphabetical order until the limit is reached
+     */
+    private void walk(Node<V> node, int limit, List<Object> into, boolean names) {
+        if(node == null || into.size() >= limit) return;
+
+        walk(node.lo, limit, into, names);
+        if(into.size() >= limit) return;
+        if(node.value != null) into.add(names ? node.name : node.value);
+        walk(node.eq, limit, into, names);
+        walk(node.hi, limit, into, names);
+    }
+
+    /**
+     * Finds the node of a name's last character
+     *
+     * @param name The name
+     * @return The node, or null if no indexed name starts with it
+     */
+    private Node<V> find(String name) {
+        if(name.isEmpty()) return null;
+
+        Node<V> node = root;
+        int i = 0;
+        while(node != null) {
+            final char c = fold(name.charAt(i));
+            if(c < node.c) node = node.lo;
+            else if(c > node.c) node = node.hi;
+            else if(++i < name.length()) node = node.eq;
+            else return node;
+        }
+        return null;
+    }
+
+    /**
+     * Removes the nodes along a name's path that no longer lead to any name.
+     * A dead node with smaller and larger siblings is replaced by the smallest of the larger ones.
+     *
+     * @return The node to keep in place of this one
+     */
+    private Node<V> prune(Node<V> node, String name, int i) {
+        if(node == null) return null;
+
+        final char c = fold(name.charAt(i));
+        if(c < node.c) node.lo = prune(node.lo, name, i);
+        else if(c > node.c) node.hi = prune(node.hi, name, i);
+        else if(i + 1 < name.length()) node.eq = prune(node.eq, name, i + 1);
+
+        if(node.value != null || node.eq != null) return node;
+        if(node.lo == null) return node.hi;
+        if(node.hi == null) return node.lo;
+
+        Node<V> parent = null, successor = node.hi;
+        while(successor.lo != null) {
+            parent = successor;
+            successor = successor.lo;
+        }
+        if(parent != null) {
+            parent.lo = successor.hi;
+            successor.hi = node.hi;
+        }
+        successor.lo = node.lo;
+        return successor;
+    }
+
+    /**
+     * Counts the nodes of a subtree
+     */
+    private static int count(Node<?> node) {
+        return node == null ? 0 : 1 + count(node.lo) + count(node.eq) + count(node.hi);
+    }
+
+    /**
+     * Folds a character's case so matching ignores it
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * A node of the trie
+     */
+    private static class Node<V> {
+
+        /**
+         * The character of this node
+         */
+        private final char c;
+        /**
+         * The children for smaller characters, the next character, and larger characters
+         */
+        private Node<V> lo, eq, hi;
+        /**
+         * The name ending at this node as it was added, null if none does
+         */
+        private String name;
+        /**
+         * The value of the name ending at this node, null if none does
+         */
+        private V value;
+
+        Node(char c) {
+            this.c = c;
+        }
+
+    }
+
+}
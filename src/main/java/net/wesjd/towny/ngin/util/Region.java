@@ -1,42 +1,83 @@
 package net.wesjd.towny.ngin.util;
 
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
- * Represents a cuboid box
+ * Represents a cuboid box, kept as primitive bounds so checks never allocate
  */
 public class Region {
 
     /**
-     * The two locations that represent the confines of this box
+     * The half width of a player's hitbox
+     */
+    private static final double PLAYER_RADIUS = 0.3;
+    /**
+     * The height of a player's hitbox
      */
-    private Location pos1, pos2;
+    private static final double PLAYER_HEIGHT = 1.8;
+
+    /**
+     * The name of the world this box is in
+     */
+    private final String worldName;
+    /**
+     * The confines of this box
+     */
+    private final double minX, minY, minZ, maxX, maxY, maxZ;
+    /**
+     * The confines of this box in block coordinates, inclusive
+     */
+    private final int minBlockX, minBlockY, minBlockZ, maxBlockX, maxBlockY, maxBlockZ;
 
     /**
      * Constructs a new box with the
      * specified world and boundaries,
      * using doubles
      *
-     * @param world The world the Box is in
-     * @param x1 The minimum x coordinate
-     * @param y1 The minimum y coordinate
-     * @param z1 The minimum z coordinate
-     * @param x2 The maximum x coordinate
-     * @param y2 The maximum y coordinate
-     * @param z2 The maximum z coordinate
+     * @param worldName The name of the world the box is in
+     * @param x1 The first x coordinate
+     * @param y1 The first y coordinate
+     * @param z1 The first z coordinate
+     * @param x2 The second x coordinate
+     * @param y2 The second y coordinate
+     * @param z2 The second z coordinate
      */
-    public Region(World world, double x1, double y1, double z1, double x2, double y2, double z2) {
-        double minX = Math.min(x1, x2), minY = Math.min(y1, y2), minZ = Math.min(z1, z2);
+    public Region(String worldName, double x1, double y1, double z1, double x2, double y2, double z2) {
+        this.worldName = worldName;
 
-        double maxX = Math.max(x1, x2), maxY = Math.max(y1, y2), maxz = Math.max(z1, z2);
+        minX = Math.min(x1, x2);
+        minY = Math.min(y1, y2);
+        minZ = Math.min(z1, z2);
+        maxX = Math.max(x1, x2);
+        maxY = Math.max(y1, y2);
+        maxZ = Math.max(z1, z2);
 
-        pos1 = new Location(world, minX, minY, minZ);
-        pos2 = new Location(world, maxX, maxY, maxz);
+        minBlockX = floor(minX);
+        minBlockY = floor(minY);
+        minBlockZ = floor(minZ);
+        maxBlockX = floor(maxX);
+        maxBlockY = floor(maxY);
+        maxBlockZ = floor(maxZ);
+    }
+
+    /**
+     * Constructs a new box with the
+     * specified world and boundaries,
+     * using doubles
+     *
+     * @param world The world the Box is in
+     * @param x1 The first x coordinate
+     * @param y1 The first y coordinate
+     * @param z1 The first z coordinate
+     * @param x2 The second x coordinate
+     * @param y2 The second y coordinate
+     * @param z2 The second z coordinate
+     */
+    public Region(World world, double x1, double y1, double z1, double x2, double y2, double z2) {
+        this(world.getName(), x1, y1, z1, x2, y2, z2);
     }
 
     /**
@@ -51,31 +92,161 @@ public class Region {
         this(pos1.getWorld(), pos1.getX(), pos1.getY(), pos1.getZ(), pos2.getX(), pos2.getY(), pos2.getZ());
     }
 
-    public Location getPos1() {
-        return pos1;
+    public String getWorldName() {
+        return worldName;
+    }
+
+    /**
+     * Gets the world this box is in
+     *
+     * @return The {@link World}, or null if it isn't loaded
+     */
+    public World getWorld() {
+        return Bukkit.getWorld(worldName);
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMinZ() {
+        return minZ;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public double getMaxZ() {
+        return maxZ;
+    }
+
+    public int getMinBlockX() {
+        return minBlockX;
+    }
+
+    public int getMinBlockY() {
+        return minBlockY;
+    }
+
+    public int getMinBlockZ() {
+        return minBlockZ;
     }
 
-    public Location getPos2() {
-        return pos2;
+    public int getMaxBlockX() {
+        return maxBlockX;
+    }
+
+    public int getMaxBlockY() {
+        return maxBlockY;
+    }
+
+    public int getMaxBlockZ() {
+        return maxBlockZ;
     }
 
     /**
-     * Returns an array of all the
-     * blocks between the first corner
-     * and the second corner.
+     * Gets the amount of blocks inside the boundaries
      *
-     * @return A {@link List<Location>} of all blocks inside the boundaries
+     * @return The volume in blocks
      */
-    public List<Location> getAllBlocks() {
-        List<Location> ret = new ArrayList<>();
-        for (int x = pos1.getBlockX(); x <= pos2.getBlockX(); x++) {
-            for (int y = pos1.getBlockY(); y <= pos2.getBlockY(); y++) {
-                for (int z = pos1.getBlockZ(); z <= pos2.getBlockZ(); z++) {
-                    ret.add(new Location(pos1.getWorld(), x, y, z));
+    public long getVolume() {
+        return (long) (maxBlockX - minBlockX + 1) * (maxBlockY - minBlockY + 1) * (maxBlockZ - minBlockZ + 1);
+    }
+
+    /**
+     * Gets the amount of columns inside the boundaries, ignoring height
+     *
+     * @return The area in blocks
+     */
+    public long getArea() {
+        return (long) (maxBlockX - minBlockX + 1) * (maxBlockZ - minBlockZ + 1);
+    }
+
+    /**
+     * Checks whether a point is inside this box
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return Whether the point is inside
+     */
+    public boolean contains(double x, double y, double z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    /**
+     * Checks whether a block is inside this box
+     *
+     * @param x The block x
+     * @param y The block y
+     * @param z The block z
+     * @return Whether the block is inside
+     */
+    public boolean containsBlock(int x, int y, int z) {
+        return x >= minBlockX && x <= maxBlockX && y >= minBlockY && y <= maxBlockY && z >= minBlockZ && z <= maxBlockZ;
+    }
+
+    /**
+     * Checks whether a location is inside this box
+     *
+     * @param location The location to check
+     * @return Whether it's in the same world and inside
+     */
+    public boolean contains(Location location) {
+        return location.getWorld() != null && location.getWorld().getName().equals(worldName)
+                && contains(location.getX(), location.getY(), location.getZ());
+    }
+
+    /**
+     * Runs a visitor on every block between the
+     * first corner and the second corner,
+     * without creating any objects per block.
+     *
+     * @param visitor The visitor to run
+     */
+    public void forEachBlock(BlockVisitor visitor) {
+        for (int x = minBlockX; x <= maxBlockX; x++) {
+            for (int y = minBlockY; y <= maxBlockY; y++) {
+                for (int z = minBlockZ; z <= maxBlockZ; z++) {
+                    visitor.visit(x, y, z);
                 }
             }
         }
-        return ret;
+    }
+
+    /**
+     * Runs a visitor on every chunk this box covers, along with
+     * the part of the box inside that chunk, so callers can load
+     * each chunk once and work through its blocks together.
+     *
+     * @param visitor The visitor to run
+     */
+    public void forEachChunk(ChunkVisitor visitor) {
+        for (int chunkX = minBlockX >> 4; chunkX <= maxBlockX >> 4; chunkX++) {
+            for (int chunkZ = minBlockZ >> 4; chunkZ <= maxBlockZ >> 4; chunkZ++) {
+                visitor.visit(chunkX, chunkZ,
+                        Math.max(minBlockX, chunkX << 4), Math.max(minBlockZ, chunkZ << 4),
+                        Math.min(maxBlockX, (chunkX << 4) + 15), Math.min(maxBlockZ, (chunkZ << 4) + 15));
+            }
+        }
+    }
+
+    /**
+     * Creates a cursor over every block in this box
+     *
+     * @return A new {@link BlockCursor}
+     */
+    public BlockCursor cursor() {
+        return new BlockCursor();
     }
 
     /**
@@ -85,7 +256,8 @@ public class Region {
      * @return Whether the two boxes intersect
      */
     public boolean intersectsWith(Region other) {
-        return this.intersectsWith(other.pos1.getX(), other.pos1.getY(), other.pos1.getZ(), other.pos2.getX(), other.pos2.getY(), other.pos2.getZ());
+        return worldName.equals(other.worldName)
+                && intersectsWith(other.minX, other.minY, other.minZ, other.maxX, other.maxY, other.maxZ);
     }
 
     /**
@@ -100,7 +272,23 @@ public class Region {
      * @return Whether this box and the two corners intercept
      */
     public boolean intersectsWith(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
-        return this.pos1.getX() < maxX && this.pos2.getX() > minX && this.pos1.getY() < maxY && this.pos2.getY() > minY && this.pos1.getZ() < maxZ && this.pos2.getZ() > minZ;
+        return this.minX < maxX && this.maxX > minX && this.minY < maxY && this.maxY > minY && this.minZ < maxZ && this.maxZ > minZ;
+    }
+
+    /**
+     * Checks whether this box intercepts with a block range
+     *
+     * @param minX The minimum block x
+     * @param minY The minimum block y
+     * @param minZ The minimum block z
+     * @param maxX The maximum block x
+     * @param maxY The maximum block y
+     * @param maxZ The maximum block z
+     * @return Whether this box shares a block with the range
+     */
+    public boolean intersectsBlocks(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return minBlockX <= maxX && maxBlockX >= minX && minBlockY <= maxY && maxBlockY >= minY
+                && minBlockZ <= maxZ && maxBlockZ >= minZ;
     }
 
     /**
@@ -111,20 +299,102 @@ public class Region {
      * @return Whether this box intercepts with the players hitbox
      */
     public boolean intersectsWith(Player player) {
-        return playerToBox(player.getLocation()).intersectsWith(this);
+        final Location l = player.getLocation();
+        return l.getWorld() != null && l.getWorld().getName().equals(worldName)
+                && intersectsWith(l.getX() - PLAYER_RADIUS, l.getY(), l.getZ() - PLAYER_RADIUS,
+                l.getX() + PLAYER_RADIUS, l.getY() + PLAYER_HEIGHT, l.getZ() + PLAYER_RADIUS);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("Region{");
+        sb.append("world='").append(worldName).append('\'');
+        sb.append(", min=(").append(minX).append(", ").append(minY).append(", ").append(minZ).append(')');
+        sb.append(", max=(").append(maxX).append(", ").append(maxY).append(", ").append(maxZ).append(')');
+        sb.append('}');
+        return sb.toString();
     }
 
     /**
-     * Attempts to get an accurate box for a players hitbox
+     * Floors a coordinate to a block coordinate
      *
-     * @param l The location of the player
-     * @return The calculated Box
+     * @param value The coordinate
+     * @return The block coordinate
+     */
+    private static int floor(double value) {
+        final int truncated = (int) value;
+        return value < truncated ? truncated - 1 : truncated;
+    }
+
+    /**
+     * Visits blocks by their coordinates
      */
-    private Region playerToBox(Location l) {
-        Location pos1 = l.clone().subtract(0.3, 0, 0.3);
-        Location pos2 = pos1.clone().add(0.6, 1.8, 0.6);
-        return new Region(pos1, pos2);
+    @FunctionalInterface
+    public interface BlockVisitor {
+        void visit(int x, int y, int z);
     }
 
+    /**
+     * Visits the chunks a box covers, with the part of the box inside each one
+     */
+    @FunctionalInterface
+    public interface ChunkVisitor {
+        void visit(int chunkX, int chunkZ, int minX, int minZ, int maxX, int maxZ);
+    }
+
+    /**
+     * A reusable cursor over every block in the box, x outermost and z innermost
+     */
+    public class BlockCursor {
+
+        /**
+         * The current block, before the first block until {@link #next()} is called
+         */
+        private int x, y, z;
+
+        private BlockCursor() {
+            reset();
+        }
+
+        /**
+         * Moves the cursor back before the first block
+         */
+        public void reset() {
+            x = minBlockX;
+            y = minBlockY;
+            z = minBlockZ - 1;
+        }
+
+        /**
+         * Moves to the next block
+         *
+         * @return Whether there was another block
+         */
+        public boolean next() {
+            if (++z <= maxBlockZ) return true;
+            z = minBlockZ;
+            if (++y <= maxBlockY) return true;
+            y = minBlockY;
+            if (++x <= maxBlockX) return true;
+
+            x = maxBlockX;
+            y = maxBlockY;
+            z = maxBlockZ;
+            return false;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getZ() {
+            return z;
+        }
+
+    }
 
-}
\ No newline at end of file
+}
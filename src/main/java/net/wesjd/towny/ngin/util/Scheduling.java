@@ -3,11 +3,23 @@ package net.wesjd.towny.ngin.util;
 import net.wesjd.towny.ngin.Towny;
 import org.bukkit.Bukkit;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
 /**
  * Schedules tasks
  */
 public class Scheduling {
 
+    /**
+     * Runs tasks on the main thread, directly if already on it
+     */
+    private static final Executor MAIN_THREAD = runnable -> {
+        if(Bukkit.isPrimaryThread()) runnable.run();
+        else sync(runnable);
+    };
+
     /**
      * Run a sync task
      *
@@ -68,4 +80,23 @@ public class Scheduling {
         Bukkit.getScheduler().runTaskLaterAsynchronously(Towny.getPlugin(), runnable, wait);
     }
 
+    /**
+     * Gets an executor running tasks on the main thread, for hopping back from async code to make Bukkit calls
+     *
+     * @return The executor
+     */
+    public static Executor mainThread() {
+        return MAIN_THREAD;
+    }
+
+    /**
+     * Gets a value on the main thread, directly if already on it
+     *
+     * @param supplier What to run
+     * @return A future completed with the value, or exceptionally if the supplier threw
+     */
+    public static <T> CompletableFuture<T> callSync(Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(supplier, MAIN_THREAD);
+    }
+
 }
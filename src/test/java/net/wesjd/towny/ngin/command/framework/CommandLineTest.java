@@ -0,0 +1,69 @@
+package net.wesjd.towny.ngin.command.framework;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommandLineTest {
+
+    @Test
+    public void labelEnd() {
+        assertEquals(5, CommandLine.labelEnd("/town"));
+        assertEquals(5, CommandLine.labelEnd("/town warp"));
+        assertEquals(1, CommandLine.labelEnd("/ town"));
+    }
+
+    @Test
+    public void splitsOnSpaces() {
+        assertArrayEquals(new String[] { "warp", "create", "home" }, tokenize("/town warp create home"));
+        assertArrayEquals(new String[] { "warp", "home" }, tokenize("/town   warp  home  "));
+        assertArrayEquals(new String[0], tokenize("/town"));
+        assertArrayEquals(new String[0], tokenize("/town   "));
+    }
+
+    @Test
+    public void quotesKeepSpaces() {
+        assertArrayEquals(new String[] { "rename", "New Town", "now" }, tokenize("/town rename \"New Town\" now"));
+        assertArrayEquals(new String[] { "" }, tokenize("/town \"\""));
+        assertArrayEquals(new String[] { "a", " b ", "c" }, tokenize("/town a \" b \" c"));
+    }
+
+    @Test
+    public void escapesInsideQuotes() {
+        assertArrayEquals(new String[] { "say \"hi\"" }, tokenize("/town \"say \\\"hi\\\"\""));
+        assertArrayEquals(new String[] { "back\\slash" }, tokenize("/town \"back\\\\slash\""));
+        assertArrayEquals(new String[] { "ends with \\" }, tokenize("/town \"ends with \\\\\""));
+        //anything else after a backslash is kept as typed
+        assertArrayEquals(new String[] { "a\\nb" }, tokenize("/town \"a\\nb\""));
+    }
+
+    @Test
+    public void backslashesOutsideQuotesAreLiteral() {
+        assertArrayEquals(new String[] { "a\\\"b" }, tokenize("/town a\\\"b"));
+    }
+
+    @Test
+    public void unterminatedQuoteRunsToTheEnd() {
+        assertArrayEquals(new String[] { "rename", "New Town" }, tokenize("/town rename \"New Town"));
+        assertArrayEquals(new String[] { "trailing \\" }, tokenize("/town \"trailing \\"));
+    }
+
+    @Test
+    public void partialEndsWithTheArgumentBeingTyped() {
+        assertArrayEquals(new String[] { "warp", "cr" }, tokenizePartial("/town warp cr"));
+        assertArrayEquals(new String[] { "warp", "" }, tokenizePartial("/town warp "));
+        assertArrayEquals(new String[] { "" }, tokenizePartial("/town "));
+        assertArrayEquals(new String[0], tokenizePartial("/town"));
+        assertArrayEquals(new String[] { "rename", "New To" }, tokenizePartial("/town rename \"New To"));
+        assertArrayEquals(new String[] { "rename", "New Town", "" }, tokenizePartial("/town rename \"New Town\" "));
+    }
+
+    private static String[] tokenize(String message) {
+        return CommandLine.tokenize(message, CommandLine.labelEnd(message));
+    }
+
+    private static String[] tokenizePartial(String message) {
+        return CommandLine.tokenizePartial(message, CommandLine.labelEnd(message));
+    }
+
+}
@@ -0,0 +1,49 @@
+package net.wesjd.towny.ngin.command.framework;
+
+import com.google.common.collect.ImmutableMap;
+import net.wesjd.towny.ngin.command.framework.argument.Arguments;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class CommandNodeTest {
+
+    private final CommandNode create = leaf(), list = leaf();
+    private final CommandNode warp = new CommandNode(null, null, ImmutableMap.of("create", create, "list", list));
+    private final CommandNode town = new CommandNode(null, null, ImmutableMap.of("warp", warp));
+
+    @Test
+    public void walksToDeepestSubcommand() {
+        final Arguments arguments = new Arguments(new String[] { "warp", "create", "home" });
+        assertSame(create, town.walk(arguments));
+        assertEquals("home", arguments.next());
+        assertFalse(arguments.hasNext());
+    }
+
+    @Test
+    public void ignoresCase() {
+        assertSame(list, town.walk(new Arguments(new String[] { "Warp", "LIST" })));
+    }
+
+    @Test
+    public void stopsAtUnknownName() {
+        final Arguments arguments = new Arguments(new String[] { "warp", "home", "create" });
+        assertSame(warp, town.walk(arguments));
+        assertEquals("home", arguments.next());
+
+        assertSame(town, town.walk(new Arguments(new String[0])));
+    }
+
+    @Test
+    public void completesChildNames() {
+        assertEquals(Collections.singletonList("create"), warp.completeChild("cR", 10));
+        assertTrue(warp.completeChild("x", 10).isEmpty());
+    }
+
+    private static CommandNode leaf() {
+        return new CommandNode(null, null, Collections.emptyMap());
+    }
+
+}
@@ -0,0 +1,68 @@
+package net.wesjd.towny.ngin.command.framework;
+
+import com.google.common.collect.ImmutableMap;
+import net.wesjd.towny.ngin.command.framework.argument.Arguments;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving a typed command to its subcommand's node, everything dispatch does before the invocation plan runs.
+ * Run with <code>java -cp &lt;test classpath&gt; org.openjdk.jmh.Main DispatchBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private final LabelTable<CommandNode> commands = new LabelTable<>();
+
+    @Setup
+    public void setUp() {
+        for(int i = 0; i < 40; i++) commands.put("command" + i, leaf());
+        commands.put("town", node(ImmutableMap.<String, CommandNode>builder()
+                .put("create", leaf())
+                .put("info", leaf())
+                .put("claim", leaf())
+                .put("top", leaf())
+                .put("warp", node(ImmutableMap.of("create", leaf(), "delete", leaf(), "list", leaf())))
+                .put("rank", node(ImmutableMap.of("create", leaf(), "perm", node(ImmutableMap.of("add", leaf(), "list", leaf())))))
+                .build()));
+    }
+
+    @Benchmark
+    public CommandNode subcommand() {
+        return resolve("/town warp create home");
+    }
+
+    @Benchmark
+    public CommandNode mixedCase() {
+        return resolve("/Town WARP Create home");
+    }
+
+    @Benchmark
+    public CommandNode otherPlugin() {
+        return resolve("/spawn some arguments");
+    }
+
+    private CommandNode resolve(String message) {
+        final int labelEnd = CommandLine.labelEnd(message);
+        final CommandNode command = commands.get(message, 1, labelEnd);
+        if(command == null) return null;
+        return command.walk(new Arguments(CommandLine.tokenize(message, labelEnd)));
+    }
+
+    private static CommandNode node(Map<String, CommandNode> children) {
+        return new CommandNode(null, null, children);
+    }
+
+    private static CommandNode leaf() {
+        return node(Collections.emptyMap());
+    }
+
+}
@@ -0,0 +1,97 @@
+package net.wesjd.towny.ngin.command.framework;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Multimap;
+import net.wesjd.towny.ngin.command.framework.annotation.parameter.Regex;
+import net.wesjd.towny.ngin.command.framework.annotation.parameter.Required;
+import net.wesjd.towny.ngin.command.framework.argument.verifier.ArgumentVerifier;
+import net.wesjd.towny.ngin.command.framework.argument.verifier.RegexVerifier;
+import net.wesjd.towny.ngin.command.framework.argument.verifier.RequiredVerifier;
+import net.wesjd.towny.ngin.metrics.Metrics;
+import net.wesjd.towny.ngin.player.TownyPlayer;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InvocationPlanTest {
+
+    private final Multimap<Class<?>, ArgumentVerifier<?>> verifiers = ArrayListMultimap.create();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private InvocationPlan plan;
+
+    @Before
+    public void setUp() throws Exception {
+        verifiers.put(Object.class, new RequiredVerifier());
+        verifiers.put(String.class, new RegexVerifier());
+        plan = new InvocationPlan(new Commands(), Commands.class.getDeclaredMethod("name", TownyPlayer.class, String.class, String.class),
+                Collections.emptyMap(), type -> {
+                    lookups.incrementAndGet();
+                    final List<ArgumentVerifier<?>> found = new ArrayList<>(verifiers.get(type));
+                    found.addAll(verifiers.get(Object.class));
+                    return found;
+                }, new CommandLimits(1), "name", new Metrics());
+    }
+
+    @Test
+    public void verifiesEachParameter() {
+        assertNull(plan.verify(new Object[] { null, "home", "x" }));
+        assertEquals("Names are lowercase letters", plan.verify(new Object[] { null, "Home", "x" }));
+        assertEquals("Names are lowercase letters", plan.verify(new Object[] { null, null, "x" }));
+        assertEquals("Give a reason", plan.verify(new Object[] { null, "home", null }));
+        assertEquals("Names are lowercase letters", plan.verify(new Object[] { null, "Home", null }));
+    }
+
+    @Test
+    public void stayFlatOverMillionsOfInvocations() {
+        Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().getId();
+        final Object[] valid = { null, "home", "x" }, invalid = { null, "Home", "x" };
+
+        final int batches = 20, perBatch = 250_000;
+        final long[] allocated = new long[batches], elapsed = new long[batches];
+        for(int b = 0; b < batches; b++) {
+            final long bytes = threads.getThreadAllocatedBytes(thread), start = System.nanoTime();
+            for(int i = 0; i < perBatch; i++) {
+                if(plan.verify(valid) != null || plan.verify(invalid) == null) fail();
+            }
+            elapsed[b] = System.nanoTime() - start;
+            allocated[b] = threads.getThreadAllocatedBytes(thread) - bytes;
+        }
+
+        //the registered verifiers are only looked up when the plan is compiled, and never grow
+        assertEquals(2, lookups.get());
+        assertEquals(1, verifiers.get(String.class).size());
+        assertEquals(1, verifiers.get(Object.class).size());
+
+        //once warmed up, the last batches allocate and take no more than the middle ones
+        final long settledBytes = median(allocated, 5, 12), lastBytes = median(allocated, 12, batches);
+        final long settledTime = median(elapsed, 5, 12), lastTime = median(elapsed, 12, batches);
+        assertTrue("Allocation grew from " + settledBytes + " to " + lastBytes, lastBytes <= settledBytes + settledBytes / 4 + 4096);
+        assertTrue("Latency grew from " + settledTime + " to " + lastTime, lastTime <= settledTime * 3);
+    }
+
+    private static long median(long[] values, int from, int to) {
+        final long[] sorted = Arrays.copyOfRange(values, from, to);
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    static class Commands {
+
+        void name(TownyPlayer player, @Regex(exp = "[a-z]+", fail = "Names are lowercase letters") String name,
+                  @Required(fail = "Give a reason") String reason) {
+        }
+
+    }
+
+}
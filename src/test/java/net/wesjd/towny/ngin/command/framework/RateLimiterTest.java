@@ -0,0 +1,100 @@
+package net.wesjd.towny.ngin.command.framework;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+    private final UUID player = new UUID(0, 1);
+
+    @Test
+    public void allowsABurstThenRefillsEvenly() {
+        final RateLimiter limiter = new RateLimiter(4, 2, now::get);
+        for(int i = 0; i < 4; i++) assertEquals(0, limiter.tryAcquire(player));
+
+        //one use comes back every half second
+        assertEquals(SECOND / 2, limiter.tryAcquire(player));
+        now.addAndGet(SECOND / 4);
+        assertEquals(SECOND / 4, limiter.tryAcquire(player));
+        now.addAndGet(SECOND / 4);
+        assertEquals(0, limiter.tryAcquire(player));
+        assertEquals(SECOND / 2, limiter.tryAcquire(player));
+    }
+
+    @Test
+    public void refusalsDontCost() {
+        final RateLimiter limiter = new RateLimiter(1, 1, now::get);
+        assertEquals(0, limiter.tryAcquire(player));
+        for(int i = 0; i < 100; i++) assertEquals(SECOND, limiter.tryAcquire(player));
+        now.addAndGet(SECOND);
+        assertEquals(0, limiter.tryAcquire(player));
+    }
+
+    @Test
+    public void idleTimeDoesntBank() {
+        final RateLimiter limiter = new RateLimiter(3, 3, now::get);
+        assertEquals(0, limiter.tryAcquire(player));
+        now.addAndGet(60 * SECOND);
+        for(int i = 0; i < 3; i++) assertEquals(0, limiter.tryAcquire(player));
+        assertTrue(limiter.tryAcquire(player) > 0);
+    }
+
+    @Test
+    public void playersAreIndependent() {
+        final RateLimiter limiter = new RateLimiter(1, 10, now::get);
+        assertEquals(0, limiter.tryAcquire(player));
+        assertTrue(limiter.tryAcquire(player) > 0);
+        assertEquals(0, limiter.tryAcquire(new UUID(0, 2)));
+    }
+
+    @Test
+    public void cleanUpKeepsPartlyUsedBuckets() {
+        final RateLimiter limiter = new RateLimiter(2, 2, now::get);
+        final UUID rested = new UUID(0, 2);
+        assertEquals(0, limiter.tryAcquire(rested));
+        assertEquals(0, limiter.tryAcquire(player));
+        assertEquals(0, limiter.tryAcquire(player));
+        now.addAndGet(SECOND);
+
+        limiter.cleanUp();
+        assertEquals(0, limiter.tryAcquire(player));
+        assertEquals(SECOND, limiter.tryAcquire(player));
+        assertEquals(0, limiter.tryAcquire(rested));
+        assertEquals(0, limiter.tryAcquire(rested));
+    }
+
+    @Test
+    public void concurrentUsesNeverExceedTheBurst() throws Exception {
+        final RateLimiter limiter = new RateLimiter(50, 1, now::get);
+        final AtomicInteger taken = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        for(int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for(int i = 0; i < 1_000; i++) {
+                    if(limiter.tryAcquire(player) == 0) taken.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for(Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(50, taken.get());
+    }
+
+}
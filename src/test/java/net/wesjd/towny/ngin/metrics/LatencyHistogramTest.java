@@ -0,0 +1,107 @@
+package net.wesjd.towny.ngin.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void smallValuesAreExact() {
+        for(int n = 0; n < 16; n++) {
+            assertEquals(n, LatencyHistogram.bucketOf(n));
+            assertEquals(n, LatencyHistogram.upperBoundOf(n));
+        }
+    }
+
+    @Test
+    public void bucketsCoverEveryValueOnce() {
+        final Random random = new Random(3);
+        for(int i = 0; i < 1_000_000; i++) {
+            final long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            assertInBucket(value);
+        }
+        for(int bit = 0; bit < 63; bit++) {
+            final long power = 1L << bit;
+            assertInBucket(power - 1);
+            assertInBucket(power);
+            assertInBucket(power + 1);
+        }
+        assertInBucket(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.upperBoundOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void bucketsAreContiguousAndNarrow() {
+        final int last = LatencyHistogram.bucketOf(Long.MAX_VALUE);
+        for(int bucket = 1; bucket <= last; bucket++) {
+            final long lower = LatencyHistogram.upperBoundOf(bucket - 1) + 1, upper = LatencyHistogram.upperBoundOf(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(lower));
+            assertEquals(bucket, LatencyHistogram.bucketOf(upper));
+            assertTrue("Bucket " + bucket + " is too wide", upper - lower <= lower / 8);
+        }
+    }
+
+    @Test
+    public void percentilesWithinAnEighth() {
+        final Random random = new Random(11);
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final long[] samples = new long[100_000];
+        for(int i = 0; i < samples.length; i++) {
+            samples[i] = (long) Math.exp(random.nextDouble() * 20);
+            histogram.record(samples[i]);
+        }
+        Arrays.sort(samples);
+
+        for(double percentile : new double[] { 1, 25, 50, 90, 99, 99.9, 100 }) {
+            final long exact = samples[(int) Math.ceil(samples.length * percentile / 100) - 1];
+            final long estimate = histogram.getPercentile(percentile);
+            assertTrue(percentile + ": " + estimate + " below " + exact, estimate >= exact);
+            assertTrue(percentile + ": " + estimate + " far above " + exact, estimate <= exact + exact / 8);
+        }
+        assertEquals(samples[samples.length - 1], histogram.getMax());
+        assertEquals(samples.length, histogram.getCount());
+    }
+
+    @Test
+    public void percentileIsCappedAtMax() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        assertEquals(1000, histogram.getPercentile(50));
+
+        histogram.record(5000);
+        assertEquals(1023, histogram.getPercentile(50));
+        assertEquals(5000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void negativeSamplesCountAsZero() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.getPercentile(100));
+        assertEquals(0, histogram.getMax());
+        assertEquals(1, histogram.getCount());
+    }
+
+    @Test
+    public void reset() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+        histogram.record(123_456);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0, histogram.getMean(), 0);
+    }
+
+    private static void assertInBucket(long value) {
+        final int bucket = LatencyHistogram.bucketOf(value);
+        assertTrue(value + " is above its bucket", value <= LatencyHistogram.upperBoundOf(bucket));
+        if(bucket > 0) assertTrue(value + " is below its bucket", value > LatencyHistogram.upperBoundOf(bucket - 1));
+    }
+
+}
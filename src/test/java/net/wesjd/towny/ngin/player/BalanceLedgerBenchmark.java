@@ -0,0 +1,51 @@
+package net.wesjd.towny.ngin.player;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of mixed deposits and withdrawals from several threads at once, as vault calls arrive.
+ * Run with <code>java -cp &lt;test classpath&gt; org.openjdk.jmh.Main BalanceLedgerBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class BalanceLedgerBenchmark {
+
+    /**
+     * The amount of accounts, few enough that threads often hit the same one
+     */
+    @Param({ "16", "10000" })
+    private int accounts;
+
+    private BalanceLedger ledger;
+    private UUID[] uuids;
+
+    @Setup
+    public void setUp() {
+        ledger = new BalanceLedger(new File("balances-benchmark.dat"));
+        uuids = new UUID[accounts];
+        for(int i = 0; i < accounts; i++) {
+            uuids[i] = new UUID(0, i);
+            ledger.open(uuids[i], 1_000_000, null);
+        }
+    }
+
+    @Benchmark
+    public void mixed(Blackhole blackhole) {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final UUID uuid = uuids[random.nextInt(uuids.length)];
+        if(random.nextBoolean()) blackhole.consume(ledger.deposit(uuid, 100));
+        else blackhole.consume(ledger.withdraw(uuid, 100));
+    }
+
+}
@@ -0,0 +1,93 @@
+package net.wesjd.towny.ngin.player;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class BalanceLedgerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void withdrawRefusesOverdraft() throws Exception {
+        final BalanceLedger ledger = new BalanceLedger(folder.newFile());
+        final UUID uuid = new UUID(0, 1);
+        assertEquals(BalanceLedger.INSUFFICIENT_FUNDS, ledger.withdraw(uuid, 1));
+
+        ledger.open(uuid, 500, "Notch");
+        assertEquals(200, ledger.withdraw(uuid, 300));
+        assertEquals(BalanceLedger.INSUFFICIENT_FUNDS, ledger.withdraw(uuid, 201));
+        assertEquals(200, ledger.getBalance(uuid));
+    }
+
+    @Test
+    public void depositRefusesOverflow() throws Exception {
+        final BalanceLedger ledger = new BalanceLedger(folder.newFile());
+        final UUID uuid = new UUID(0, 1);
+        ledger.open(uuid, Long.MAX_VALUE - 1, "Notch");
+        try {
+            ledger.deposit(uuid, 2);
+            fail("The balance overflowed");
+        } catch (ArithmeticException expected) {
+        }
+        assertEquals(Long.MAX_VALUE - 1, ledger.getBalance(uuid));
+    }
+
+    @Test
+    public void concurrentChangesAreNotLost() throws Exception {
+        final BalanceLedger ledger = new BalanceLedger(folder.newFile());
+        final UUID uuid = new UUID(0, 1);
+        ledger.open(uuid, 0, null);
+
+        final int threads = 8, rounds = 20_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Long>> withdrawn = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            withdrawn.add(executor.submit(() -> {
+                start.await();
+                long taken = 0;
+                for(int i = 0; i < rounds; i++) {
+                    ledger.deposit(uuid, 3);
+                    if(ledger.withdraw(uuid, 2) != BalanceLedger.INSUFFICIENT_FUNDS) taken += 2;
+                }
+                return taken;
+            }));
+        }
+        start.countDown();
+
+        long taken = 0;
+        for(Future<Long> future : withdrawn) taken += future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(3L * threads * rounds - taken, ledger.getBalance(uuid));
+        assertTrue(ledger.getBalance(uuid) >= 0);
+    }
+
+    @Test
+    public void snapshotRoundTrips() throws Exception {
+        final File file = new File(folder.getRoot(), "balances.dat");
+        final BalanceLedger ledger = new BalanceLedger(file);
+        final UUID notch = new UUID(0, 1), jeb = new UUID(0, 2);
+        ledger.open(notch, 12_345, "Notch");
+        ledger.open(jeb, 99, null);
+        ledger.save();
+
+        final BalanceLedger loaded = new BalanceLedger(file);
+        assertTrue(loaded.load());
+        assertEquals(12_345, loaded.getBalance(notch));
+        assertEquals(99, loaded.getBalance(jeb));
+        assertEquals(notch, loaded.lookupName("notch"));
+        assertEquals(notch, loaded.top(0, 1).get(0).getKey());
+    }
+
+}
@@ -0,0 +1,70 @@
+package net.wesjd.towny.ngin.town;
+
+import net.wesjd.towny.ngin.util.Region;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Location lookups over 10k towns, against scanning every region like before the index.
+ * Nine in ten towns are small, the rest cover a few hundred blocks and one in a hundred is huge.
+ * Run with <code>java -cp &lt;test classpath&gt; org.openjdk.jmh.Main RegionIndexBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegionIndexBenchmark {
+
+    /**
+     * The distance from the origin towns are spread over
+     */
+    private static final int RADIUS = 100_000;
+
+    private final RegionIndex index = new RegionIndex();
+    private final List<Region> regions = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        for(int i = 0; i < 10_000; i++) {
+            final int size = i % 100 == 0 ? 6000 : i % 10 == 0 ? 400 : 48;
+            final int x = random.nextInt(2 * RADIUS) - RADIUS, z = random.nextInt(2 * RADIUS) - RADIUS;
+            final Region region = new Region("world", x, 0, z, x + size, 255, z + size);
+            regions.add(region);
+            index.put("town" + i, region);
+        }
+    }
+
+    @Benchmark
+    public String townAt() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.townAt("world", random.nextInt(2 * RADIUS) - RADIUS, 64, random.nextInt(2 * RADIUS) - RADIUS);
+    }
+
+    @Benchmark
+    public Set<String> townsIntersecting() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int x = random.nextInt(2 * RADIUS) - RADIUS, z = random.nextInt(2 * RADIUS) - RADIUS;
+        return index.townsIntersecting("world", x, 0, z, x + 64, 255, z + 64);
+    }
+
+    @Benchmark
+    public Region linearScan() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int x = random.nextInt(2 * RADIUS) - RADIUS, z = random.nextInt(2 * RADIUS) - RADIUS;
+        for(Region region : regions) {
+            if(x >= region.getMinBlockX() && x <= region.getMaxBlockX()
+                    && z >= region.getMinBlockZ() && z <= region.getMaxBlockZ()) return region;
+        }
+        return null;
+    }
+
+}
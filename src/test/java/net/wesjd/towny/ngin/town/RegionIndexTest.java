@@ -0,0 +1,140 @@
+package net.wesjd.towny.ngin.town;
+
+import net.wesjd.towny.ngin.util.Region;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class RegionIndexTest {
+
+    private RegionIndex index;
+
+    @Before
+    public void setUp() {
+        index = new RegionIndex();
+    }
+
+    @Test
+    public void smallClaim() {
+        index.put("small", new Region("world", 10, 0, 10, 40, 255, 40));
+        assertEquals("small", index.townAt("world", 10, 0, 10));
+        assertEquals("small", index.townAt("world", 40, 255, 40));
+        assertNull(index.townAt("world", 41, 64, 40));
+        assertNull(index.townAt("world", 20, 256, 20));
+        assertNull(index.townAt("world_nether", 20, 64, 20));
+    }
+
+    @Test
+    public void negativeCoordinates() {
+        index.put("west", new Region("world", -40, 0, -40, -1, 255, -1));
+        assertEquals("west", index.townAt("world", -1, 64, -1));
+        assertEquals("west", index.townAt("world", -40, 64, -17));
+        assertNull(index.townAt("world", 0, 64, -1));
+        assertNull(index.townAt("world", -41, 64, -1));
+    }
+
+    @Test
+    public void largeClaimUsesCoarseGrid() {
+        //19 by 19 chunks, too many for the chunk grid
+        index.put("large", new Region("world", 0, 0, 0, 300, 255, 300));
+        assertEquals("large", index.townAt("world", 0, 64, 0));
+        assertEquals("large", index.townAt("world", 300, 64, 300));
+        assertEquals("large", index.townAt("world", 150, 64, 299));
+        assertNull(index.townAt("world", 301, 64, 300));
+        assertEquals(Collections.singleton("large"), index.townsIntersecting("world", 290, 0, 290, 310, 255, 310));
+    }
+
+    @Test
+    public void hugeClaimIsAlwaysScanned() {
+        //10 by 10 coarse cells, too many for the coarse grid
+        index.put("huge", new Region("world", -2500, 0, -2500, 2499, 255, 2499));
+        assertEquals("huge", index.townAt("world", -2500, 64, 2499));
+        assertEquals("huge", index.townAt("world", 0, 64, 0));
+        assertNull(index.townAt("world", 2500, 64, 0));
+        assertEquals(Collections.singleton("huge"), index.townsIntersecting("world", 2400, 0, 2400, 2600, 255, 2600));
+    }
+
+    @Test
+    public void replacingPromotesAndDemotes() {
+        index.put("town", new Region("world", 10_000, 0, 10_000, 10_010, 255, 10_010));
+        index.put("town", new Region("world", 0, 0, 0, 300, 255, 300));
+        assertNull(index.townAt("world", 10_005, 64, 10_005));
+        assertEquals("town", index.townAt("world", 150, 64, 150));
+
+        index.put("town", new Region("world", -5000, 0, -5000, 5000, 255, 5000));
+        assertEquals("town", index.townAt("world", 4000, 64, -4000));
+
+        index.put("town", new Region("world", 10_000, 0, 10_000, 10_010, 255, 10_010));
+        assertNull(index.townAt("world", 150, 64, 150));
+        assertNull(index.townAt("world", 4000, 64, -4000));
+        assertEquals("town", index.townAt("world", 10_005, 64, 10_005));
+        assertEquals(Collections.singleton("town"), index.townsIntersecting("world", -100_000, 0, -100_000, 100_000, 255, 100_000));
+    }
+
+    @Test
+    public void removeAndClear() {
+        index.put("small", new Region("world", 0, 0, 0, 15, 255, 15));
+        index.put("large", new Region("world", 1000, 0, 1000, 1300, 255, 1300));
+        index.put("huge", new Region("other", -5000, 0, -5000, 5000, 255, 5000));
+
+        index.remove("small");
+        index.remove("large");
+        assertNull(index.townAt("world", 5, 64, 5));
+        assertNull(index.townAt("world", 1100, 64, 1100));
+        assertTrue(index.townsIntersecting("world", -100_000, 0, -100_000, 100_000, 255, 100_000).isEmpty());
+        assertEquals("huge", index.townAt("other", 0, 64, 0));
+
+        index.put("none", null);
+        index.clear();
+        assertNull(index.townAt("other", 0, 64, 0));
+    }
+
+    @Test
+    public void matchesLinearScan() {
+        final Random random = new Random(42);
+        final Map<String, Region> regions = new HashMap<>();
+        for(int i = 0; i < 600; i++) {
+            final int size = i % 20 == 0 ? 6000 : i % 5 == 0 ? 400 : 30;
+            final int x = random.nextInt(40_000) - 20_000, z = random.nextInt(40_000) - 20_000;
+            final Region region = new Region("world", x, 0, z, x + random.nextInt(size) + 1, 255, z + random.nextInt(size) + 1);
+            regions.put("town" + i, region);
+            index.put("town" + i, region);
+        }
+        //move some around, so promotion and removal are exercised with neighbours in place
+        for(int i = 0; i < 600; i += 7) {
+            final int x = random.nextInt(40_000) - 20_000, z = random.nextInt(40_000) - 20_000;
+            final Region region = new Region("world", x, 0, z, x + random.nextInt(3000), 255, z + random.nextInt(3000));
+            regions.put("town" + i, region);
+            index.put("town" + i, region);
+        }
+
+        for(int i = 0; i < 20_000; i++) {
+            final int x = random.nextInt(50_000) - 25_000, z = random.nextInt(50_000) - 25_000;
+            final String town = index.townAt("world", x, 64, z);
+            boolean claimed = false;
+            for(Region region : regions.values()) claimed |= contains(region, x, z);
+            assertEquals(claimed, town != null);
+            if(town != null) assertTrue(contains(regions.get(town), x, z));
+        }
+
+        for(int i = 0; i < 2_000; i++) {
+            final int size = i % 3 == 0 ? 50 : i % 3 == 1 ? 2000 : 30_000;
+            final int minX = random.nextInt(50_000) - 25_000, minZ = random.nextInt(50_000) - 25_000;
+            final int maxX = minX + random.nextInt(size), maxZ = minZ + random.nextInt(size);
+            final Set<String> expected = new HashSet<>();
+            regions.forEach((name, region) -> {
+                if(region.getMinBlockX() <= maxX && region.getMaxBlockX() >= minX
+                        && region.getMinBlockZ() <= maxZ && region.getMaxBlockZ() >= minZ) expected.add(name);
+            });
+            assertEquals(expected, index.townsIntersecting("world", minX, 0, minZ, maxX, 255, maxZ));
+        }
+    }
+
+    private static boolean contains(Region region, int x, int z) {
+        return x >= region.getMinBlockX() && x <= region.getMaxBlockX() && z >= region.getMinBlockZ() && z <= region.getMaxBlockZ();
+    }
+
+}
@@ -0,0 +1,55 @@
+package net.wesjd.towny.ngin.util;
+
+import net.md_5.bungee.api.chat.BaseComponent;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.chat.ComponentSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.bukkit.ChatColor.*;
+
+/**
+ * A model of the conversion {@link Everyone#broadcast} saves, not a measurement of it.
+ * {@link Everyone} itself isn't run: ProtocolLib's chat components and packets need a running server,
+ * so this uses the chat component api bundled with the server api instead.
+ * Before, the legacy text was converted to components once per recipient, now it's converted once per message.
+ * Each connection still writes the component as JSON, so both sides serialize once per recipient,
+ * and the packet's network encoding isn't measured at all.
+ * On a live server <code>/ngin stats chat</code> times the real path as the chat.broadcast timer.
+ * Run with <code>java -cp &lt;test classpath&gt; org.openjdk.jmh.Main BroadcastBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    /**
+     * The amount of simulated recipients
+     */
+    @Param("500")
+    private int recipients;
+
+    private final String message = GRAY + "[" + GREEN + "Member" + GRAY + "] " + GOLD + "Notch" + DARK_GRAY + ": "
+            + WHITE + "has anyone seen the " + AQUA + "warp" + WHITE + " to spawn?";
+
+    @Benchmark
+    public void convertPerRecipient(Blackhole blackhole) {
+        for(int i = 0; i < recipients; i++) {
+            blackhole.consume(ComponentSerializer.toString(TextComponent.fromLegacyText(message)));
+        }
+    }
+
+    @Benchmark
+    public void convertOnce(Blackhole blackhole) {
+        final BaseComponent[] components = TextComponent.fromLegacyText(message);
+        for(int i = 0; i < recipients; i++) {
+            blackhole.consume(ComponentSerializer.toString(components));
+        }
+    }
+
+}
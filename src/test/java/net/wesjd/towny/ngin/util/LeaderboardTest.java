@@ -0,0 +1,111 @@
+package net.wesjd.towny.ngin.util;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class LeaderboardTest {
+
+    @Test
+    public void ranksHighestFirst() {
+        final Leaderboard<String> board = new Leaderboard<>();
+        board.update("b", 10);
+        board.update("a", 30);
+        board.update("c", 20);
+
+        assertEquals(1, board.rankOf("a"));
+        assertEquals(2, board.rankOf("c"));
+        assertEquals(3, board.rankOf("b"));
+        assertEquals(0, board.rankOf("missing"));
+        assertEquals(3, board.size());
+    }
+
+    @Test
+    public void tiesBreakByKey() {
+        final Leaderboard<String> board = new Leaderboard<>();
+        board.update("c", 5);
+        board.update("a", 5);
+        board.update("b", 5);
+
+        assertEquals(Arrays.asList("a", "b", "c"), keys(board.top(0, 10)));
+        assertEquals(2, board.rankOf("b"));
+    }
+
+    @Test
+    public void updateMovesKey() {
+        final Leaderboard<String> board = new Leaderboard<>();
+        board.update("a", 1);
+        board.update("b", 2);
+        board.update("a", 3);
+        board.update("a", 3);
+
+        assertEquals(1, board.rankOf("a"));
+        assertEquals(Long.valueOf(3), board.getScore("a"));
+        assertEquals(2, board.size());
+
+        assertTrue(board.remove("a"));
+        assertFalse(board.remove("a"));
+        assertEquals(1, board.rankOf("b"));
+        assertNull(board.getScore("a"));
+    }
+
+    @Test
+    public void pages() {
+        final Leaderboard<Integer> board = new Leaderboard<>();
+        for(int i = 0; i < 25; i++) board.update(i, i);
+
+        final List<Leaderboard.Entry<Integer>> page = board.top(10, 10);
+        assertEquals(10, page.size());
+        assertEquals(11, page.get(0).getRank());
+        assertEquals(Integer.valueOf(14), page.get(0).getKey());
+        assertEquals(14, page.get(0).getScore());
+        assertEquals(20, page.get(9).getRank());
+
+        assertEquals(5, board.top(20, 10).size());
+        assertTrue(board.top(25, 10).isEmpty());
+        assertTrue(board.top(0, 0).isEmpty());
+        assertTrue(board.top(-1, 10).isEmpty());
+
+        board.clear();
+        assertEquals(0, board.size());
+        assertTrue(board.top(0, 10).isEmpty());
+    }
+
+    @Test
+    public void matchesSortedScores() {
+        final Random random = new Random(7);
+        final Leaderboard<Integer> board = new Leaderboard<>();
+        final Map<Integer, Long> scores = new HashMap<>();
+        for(int i = 0; i < 50_000; i++) {
+            final int key = random.nextInt(2_000);
+            if(random.nextInt(10) == 0) {
+                assertEquals(scores.remove(key) != null, board.remove(key));
+            } else {
+                final long score = random.nextInt(500);
+                scores.put(key, score);
+                board.update(key, score);
+            }
+        }
+
+        final List<Integer> expected = new ArrayList<>(scores.keySet());
+        expected.sort(Comparator.<Integer>comparingLong(scores::get).reversed().thenComparing(Comparator.naturalOrder()));
+        assertEquals(expected.size(), board.size());
+        assertEquals(expected, keys(board.top(0, expected.size())));
+        for(int i = 0; i < expected.size(); i++) assertEquals(i + 1, board.rankOf(expected.get(i)));
+
+        final List<Leaderboard.Entry<Integer>> page = board.top(1000, 50);
+        for(int i = 0; i < page.size(); i++) {
+            assertEquals(1001 + i, page.get(i).getRank());
+            assertEquals(expected.get(1000 + i), page.get(i).getKey());
+        }
+    }
+
+    private static <K> List<K> keys(List<Leaderboard.Entry<K>> entries) {
+        final List<K> keys = new ArrayList<>();
+        for(Leaderboard.Entry<K> entry : entries) keys.add(entry.getKey());
+        return keys;
+    }
+
+}
@@ -0,0 +1,86 @@
+package net.wesjd.towny.ngin.util;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MoneyTest {
+
+    @Test
+    public void formatPadsCents() {
+        assertEquals("$0.00", Money.format(0));
+        assertEquals("$0.05", Money.format(5));
+        assertEquals("$0.50", Money.format(50));
+        assertEquals("$1.00", Money.format(100));
+    }
+
+    @Test
+    public void formatGroupsThousands() {
+        assertEquals("$999.99", Money.format(99_999));
+        assertEquals("$1,234.56", Money.format(123_456));
+        assertEquals("$100,000.00", Money.format(10_000_000));
+        assertEquals("$1,000,000.01", Money.format(100_000_001));
+    }
+
+    @Test
+    public void formatNegative() {
+        assertEquals("-$0.01", Money.format(-1));
+        assertEquals("-$1,234.56", Money.format(-123_456));
+    }
+
+    @Test
+    public void formatExtremes() {
+        assertEquals("$92,233,720,368,547,758.07", Money.format(Long.MAX_VALUE));
+        assertEquals("-$92,233,720,368,547,758.08", Money.format(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void fromDoubleRoundsHalfAwayFromZero() {
+        assertEquals(29, Money.fromDouble(0.29));
+        assertEquals(101, Money.fromDouble(1.005));
+        assertEquals(-101, Money.fromDouble(-1.005));
+        assertEquals(100, Money.fromDouble(1.004));
+        assertEquals(1, Money.fromDouble(0.005));
+        assertEquals(0, Money.fromDouble(0.0049));
+        assertEquals(123_456, Money.fromDouble(1234.56));
+    }
+
+    @Test
+    public void fromDoubleMatchesDecimalRounding() {
+        final Random random = new Random(42);
+        for(int i = 0; i < 100_000; i++) {
+            final double amount = (random.nextInt(2_000_000) - 1_000_000) / 1000.0 * Math.pow(10, random.nextInt(10));
+            final long expected = BigDecimal.valueOf(amount).setScale(Money.FRACTIONAL_DIGITS, RoundingMode.HALF_UP).unscaledValue().longValue();
+            assertEquals(String.valueOf(amount), expected, Money.fromDouble(amount));
+        }
+    }
+
+    @Test
+    public void rejectsAmountsThatDontFit() {
+        assertTrue(Money.isValid(0));
+        assertTrue(Money.isValid(-1e15));
+        assertFalse(Money.isValid(Double.NaN));
+        assertFalse(Money.isValid(Double.POSITIVE_INFINITY));
+        assertFalse(Money.isValid(Double.NEGATIVE_INFINITY));
+        assertFalse(Money.isValid(1e17));
+    }
+
+    @Test
+    public void fromDoubleClamps() {
+        assertEquals(0, Money.fromDouble(Double.NaN));
+        assertEquals(Long.MAX_VALUE, Money.fromDouble(Double.POSITIVE_INFINITY));
+        assertEquals(Long.MIN_VALUE, Money.fromDouble(-1e300));
+    }
+
+    @Test
+    public void roundTrips() {
+        for(long minor = -10_000; minor <= 10_000; minor++) {
+            assertEquals(minor, Money.fromDouble(Money.toDouble(minor)));
+        }
+    }
+
+}
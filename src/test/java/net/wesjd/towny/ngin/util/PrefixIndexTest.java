@@ -0,0 +1,62 @@
+package net.wesjd.towny.ngin.util;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class PrefixIndexTest {
+
+    @Test
+    public void completesIgnoringCase() {
+        final PrefixIndex<Integer> index = new PrefixIndex<>();
+        index.put("Notch", 1);
+        index.put("notchy", 2);
+        index.put("Jeb", 3);
+
+        assertEquals(Arrays.asList("Notch", "notchy"), index.complete("NOT", 10));
+        assertEquals(Collections.singletonList("Notch"), index.complete("n", 1));
+        assertEquals(Collections.singletonList(3), index.search("j", 10));
+        assertEquals(Integer.valueOf(2), index.get("NOTCHY"));
+    }
+
+    @Test
+    public void removingADeadNodeWithBothSiblingsSplicesItOut() {
+        final PrefixIndex<String> index = new PrefixIndex<>();
+        for(String name : new String[] { "m", "c", "x", "a", "e", "t", "z", "r" }) index.put(name, name);
+        assertEquals(8, index.nodeCount());
+
+        index.remove("m");
+        assertEquals(7, index.nodeCount());
+        assertEquals(Arrays.asList("a", "c", "e", "r", "t", "x", "z"), index.complete("", 10));
+    }
+
+    @Test
+    public void matchesASortedMapAndLeavesNothingBehind() {
+        final PrefixIndex<String> index = new PrefixIndex<>();
+        final TreeMap<String, String> expected = new TreeMap<>();
+        final Random random = new Random(7);
+        for(int i = 0; i < 20_000; i++) {
+            final String name = name(random);
+            if(random.nextInt(3) == 0) assertEquals(expected.remove(name), index.remove(name));
+            else assertEquals(expected.put(name, name), index.put(name, name));
+
+            final String prefix = name.substring(0, 1 + random.nextInt(name.length()));
+            assertEquals(new ArrayList<>(expected.subMap(prefix, prefix + Character.MAX_VALUE).keySet()),
+                    index.complete(prefix, Integer.MAX_VALUE));
+        }
+        assertEquals(expected.size(), index.size());
+
+        new ArrayList<>(expected.keySet()).forEach(index::remove);
+        assertEquals(0, index.size());
+        assertEquals(0, index.nodeCount());
+    }
+
+    private static String name(Random random) {
+        final char[] chars = new char[1 + random.nextInt(4)];
+        for(int i = 0; i < chars.length; i++) chars[i] = (char) ('a' + random.nextInt(6));
+        return new String(chars);
+    }
+
+}